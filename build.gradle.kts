@@ -33,13 +33,14 @@ configure(javaProjects) {
         "implementation"("org.springframework.boot:spring-boot-starter-data-jpa:3.5.4")
         "implementation"("org.springframework.boot:spring-boot-starter-security:3.5.4")
         "implementation"("org.springframework.boot:spring-boot-starter-web:3.5.4")
+        "implementation"("org.springframework.boot:spring-boot-starter-actuator:3.5.4")
         "testImplementation"("org.springframework.boot:spring-boot-starter-test:3.5.4")
         "testImplementation"("org.springframework.security:spring-security-test:6.5.2")
         "testImplementation"("org.springframework.kafka:spring-kafka-test:3.3.8")
         "testImplementation"("org.springframework.boot:spring-boot-testcontainers:3.5.4")
         "implementation"("org.springframework.kafka:spring-kafka:3.3.8")
 
-        "runtimeOnly"("org.postgresql:postgresql:42.7.7")
+        "implementation"("org.postgresql:postgresql:42.7.7")
 
         "compileOnly"("org.projectlombok:lombok:1.18.38")
         "annotationProcessor"("org.projectlombok:lombok:1.18.38")
@@ -58,10 +59,12 @@ configure(javaProjects) {
 
         "implementation"("io.jsonwebtoken:jjwt-api:0.11.5")
         "runtimeOnly"("io.jsonwebtoken:jjwt-impl:0.11.5")
-        "runtimeOnly"("io.jsonwebtoken:jjwt-jackson:0.11.5")
+        "implementation"("io.jsonwebtoken:jjwt-jackson:0.11.5")
 
         "implementation"("org.springdoc:springdoc-openapi-starter-webmvc-ui:2.8.9")
 
+        "implementation"("com.github.ben-manes.caffeine:caffeine:3.2.2")
+
         "implementation"("org.apache.logging.log4j:log4j-core:2.25.1")
         "implementation"("org.apache.logging.log4j:log4j-api:2.25.1")
     }
@@ -89,6 +92,18 @@ configure(javaProjects) {
     }
 
     tasks.named<Test>("test") {
-        useJUnitPlatform()
+        useJUnitPlatform {
+            excludeTags("benchmark")
+        }
+    }
+
+    tasks.register<Test>("benchmark") {
+        val test = tasks.named<Test>("test").get()
+        testClassesDirs = test.testClassesDirs
+        classpath = test.classpath
+        useJUnitPlatform {
+            includeTags("benchmark")
+        }
+        testLogging.showStandardStreams = true
     }
 }
\ No newline at end of file
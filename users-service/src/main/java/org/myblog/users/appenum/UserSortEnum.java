@@ -0,0 +1,6 @@
+package org.myblog.users.appenum;
+
+public enum UserSortEnum {
+    ID,
+    USERNAME
+}
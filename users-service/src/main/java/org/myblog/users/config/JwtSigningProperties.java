@@ -0,0 +1,34 @@
+package org.myblog.users.config;
+
+import io.jsonwebtoken.SignatureAlgorithm;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+@Component
+@ConfigurationProperties(prefix = "auth.app.signing")
+@Data
+public class JwtSigningProperties {
+    private SignatureAlgorithm algorithm = SignatureAlgorithm.HS256;
+
+    private String activeKeyId;
+
+    private List<KeyProperties> keys = new ArrayList<>();
+
+    private long jwksMaxAgeSeconds = 300;
+
+    private Instant legacyHmacUntil;
+
+    @Data
+    public static class KeyProperties {
+        private String id;
+
+        private String privateKey;
+
+        private String publicKey;
+    }
+}
@@ -1,9 +1,15 @@
 package org.myblog.users.config;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.logging.log4j.Logger;
+import org.myblog.users.service.security.AuthThrottlingFilter;
+import org.myblog.users.service.security.BulkheadPasswordEncoder;
+import org.myblog.users.service.security.PasswordEncoderCalibrator;
 import org.myblog.users.service.security.UserDetailsServiceImpl;
 import org.myblog.users.service.security.jwt.AuthEntryPointJwt;
 import org.myblog.users.service.security.jwt.AuthTokenFilter;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -16,6 +22,7 @@ import org.springframework.security.config.annotation.web.configuration.EnableWe
 import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
@@ -24,22 +31,58 @@ import org.springframework.web.cors.CorsConfigurationSource;
 import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
 
 import java.util.List;
+import java.util.Map;
 
 @Configuration
 @EnableWebSecurity
 @EnableMethodSecurity
 public class SecurityConfig {
+    public static final String[] PUBLIC_PATHS = {
+            "/users/auth/**",
+            "/test/all",
+            "/.well-known/jwks.json",
+            "/api-docs/**",
+            "/swagger-ui/**",
+            "/swagger-ui-custom.html/**"
+    };
+
     @Autowired
     private UserDetailsServiceImpl userDetailsService;
 
     @Autowired
     private AuthEntryPointJwt unauthorizedHandler;
 
+    @Autowired
+    private Logger logger;
+
+    @Value("${auth.app.passwordHashing.threads:0}")
+    private int passwordHashingThreads;
+
+    @Value("${auth.app.passwordHashing.queueCapacity:64}")
+    private int passwordHashingQueueCapacity;
+
+    @Value("${auth.app.passwordHashing.strength:0}")
+    private int passwordHashingStrength;
+
+    @Value("${auth.app.passwordHashing.targetMs:250}")
+    private long passwordHashingTargetMs;
+
+    @Value("${auth.app.passwordHashing.minStrength:10}")
+    private int passwordHashingMinStrength;
+
+    @Value("${auth.app.passwordHashing.maxStrength:14}")
+    private int passwordHashingMaxStrength;
+
     @Bean
     public AuthTokenFilter authenticationJwtTokenFilter() {
         return new AuthTokenFilter();
     }
 
+    @Bean
+    public AuthThrottlingFilter authThrottlingFilter() {
+        return new AuthThrottlingFilter();
+    }
+
     @Bean
     public AuthenticationManager authManager(HttpSecurity http, PasswordEncoder passwordEncoder, UserDetailsService userDetailsService) throws Exception {
         AuthenticationManagerBuilder authBuilder = http.getSharedObject(AuthenticationManagerBuilder.class);
@@ -54,10 +97,20 @@ public class SecurityConfig {
     }
 
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
-    }
+    public PasswordEncoder passwordEncoder(MeterRegistry meterRegistry) {
+        int threads = passwordHashingThreads > 0 ? passwordHashingThreads : Runtime.getRuntime().availableProcessors();
+
+        int strength = passwordHashingStrength > 0
+                ? passwordHashingStrength
+                : PasswordEncoderCalibrator.calibrateBCryptStrength(passwordHashingTargetMs, passwordHashingMinStrength, passwordHashingMaxStrength);
+        logger.info("Using BCrypt strength {} for password hashing", strength);
 
+        BCryptPasswordEncoder bcrypt = new BCryptPasswordEncoder(strength);
+        DelegatingPasswordEncoder delegating = new DelegatingPasswordEncoder("bcrypt", Map.of("bcrypt", bcrypt));
+        delegating.setDefaultPasswordEncoderForMatches(bcrypt);
+
+        return new BulkheadPasswordEncoder(delegating, threads, passwordHashingQueueCapacity, meterRegistry);
+    }
 
     @Bean
     public SecurityFilterChain filterChain(HttpSecurity http) throws Exception {
@@ -65,14 +118,11 @@ public class SecurityConfig {
                 .exceptionHandling(exception -> exception.authenticationEntryPoint(unauthorizedHandler))
                 .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
                 .authorizeHttpRequests(auth ->
-                        auth.requestMatchers("/users/auth/**").permitAll()
-                                .requestMatchers("/test/all").permitAll()
-                                .requestMatchers("/api-docs/**").permitAll()
-                                .requestMatchers("/swagger-ui/**").permitAll()
-                                .requestMatchers("/swagger-ui-custom.html/**").permitAll()
+                        auth.requestMatchers(PUBLIC_PATHS).permitAll()
                                 .anyRequest().authenticated()
                 );
 
+        http.addFilterBefore(authThrottlingFilter(), UsernamePasswordAuthenticationFilter.class);
         http.addFilterBefore(authenticationJwtTokenFilter(), UsernamePasswordAuthenticationFilter.class);
 
         return http.build();
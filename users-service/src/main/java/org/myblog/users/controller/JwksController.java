@@ -0,0 +1,24 @@
+package org.myblog.users.controller;
+
+import org.myblog.users.service.security.jwt.JwtSigningKeys;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+@RestController
+public class JwksController {
+    @Autowired
+    private JwtSigningKeys signingKeys;
+
+    @GetMapping("/.well-known/jwks.json")
+    public ResponseEntity<Map<String, Object>> jwks() {
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.maxAge(signingKeys.getJwksMaxAgeSeconds(), TimeUnit.SECONDS).cachePublic())
+                .body(signingKeys.getJwks());
+    }
+}
@@ -1,6 +1,10 @@
 package org.myblog.users.controller;
 
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
+import org.myblog.users.dto.request.IntrospectRequest;
+import org.myblog.users.dto.request.UserPageRequest;
 import org.myblog.users.dto.request.UserPutRequest;
 import org.myblog.users.appenum.RoleEnum;
 import org.myblog.users.exception.RestIllegalArgumentException;
@@ -10,13 +14,22 @@ import org.myblog.users.model.UserModel;
 import org.myblog.users.dto.AppResponse;
 import org.myblog.users.dto.request.LoginRequest;
 import org.myblog.users.dto.request.SignupRequest;
+import org.myblog.users.dto.response.AvailabilityResponse;
 import org.myblog.users.dto.response.JwtResponse;
+import org.myblog.users.dto.response.PageResponse;
+import org.myblog.users.dto.response.UserImportReport;
+import org.myblog.users.dto.response.UserResponse;
 import org.myblog.users.repository.RoleRepository;
 import org.myblog.users.repository.UserRepository;
+import org.myblog.users.service.AvailabilityService;
+import org.myblog.users.service.UserExportService;
+import org.myblog.users.service.UserImportService;
 import org.myblog.users.service.UsersService;
 import org.myblog.users.service.security.UserDetailsImpl;
 import org.myblog.users.service.security.jwt.JwtUtils;
+import org.myblog.users.util.ETags;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -25,7 +38,11 @@ import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.context.request.async.WebAsyncTask;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
 import java.util.*;
 import java.util.stream.Collectors;
 
@@ -35,29 +52,95 @@ public class UsersController {
     @Autowired
     private UsersService usersService;
 
+    @Autowired
+    private UserImportService userImportService;
+
+    @Autowired
+    private AvailabilityService availabilityService;
+
+    @Autowired
+    private UserExportService userExportService;
+
     @PostMapping("/auth/login")
     public ResponseEntity<AppResponse<JwtResponse>> authenticateUser(@Valid @RequestBody LoginRequest loginRequest) {
         return ResponseEntity.ok().body(new AppResponse<JwtResponse>(usersService.authenticateUser(loginRequest)));
     }
 
     @PostMapping("/auth/register")
-    public ResponseEntity<AppResponse<UserModel>> registerUser(@Valid @RequestBody SignupRequest signUpRequest) {
-        return ResponseEntity.ok().body(new AppResponse<UserModel>(usersService.registerUser(signUpRequest)));
+    public ResponseEntity<AppResponse<UserResponse>> registerUser(@Valid @RequestBody SignupRequest signUpRequest) {
+        return ResponseEntity.ok().body(new AppResponse<UserResponse>(usersService.registerUser(signUpRequest)));
+    }
+
+    @PostMapping("/auth/logout")
+    public ResponseEntity<AppResponse<String>> logout(@RequestHeader(value = HttpHeaders.AUTHORIZATION, required = false) String authorization) {
+        usersService.logout(authorization);
+
+        return ResponseEntity.ok().body(new AppResponse<>("Logged out"));
+    }
+
+    @GetMapping("/auth/availability")
+    public ResponseEntity<AppResponse<AvailabilityResponse>> availability(@RequestParam(required = false) String username,
+                                                                         @RequestParam(required = false) String email) {
+        return ResponseEntity.ok().body(new AppResponse<>(availabilityService.check(username, email)));
+    }
+
+    @PostMapping("/auth/introspect")
+    public ResponseEntity<AppResponse<List<AppResponse<JwtInfo>>>> introspect(@Valid @RequestBody IntrospectRequest request) {
+        return ResponseEntity.ok().body(new AppResponse<>(usersService.introspect(request.getTokens())));
+    }
+
+    @PostMapping(value = "/user/import", consumes = {UserImportService.NDJSON, UserImportService.CSV})
+    public ResponseEntity<AppResponse<UserImportReport>> importUsers(HttpServletRequest request) throws IOException {
+        return ResponseEntity.ok().body(new AppResponse<>(userImportService.importUsers(request.getInputStream(), request.getContentType())));
+    }
+
+    @GetMapping(value = "/user/export", produces = UserExportService.NDJSON)
+    public WebAsyncTask<Void> export(@RequestParam(required = false) Integer after,
+                                     @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+                                     HttpServletResponse response) {
+        boolean gzip = UserExportService.acceptsGzip(acceptEncoding);
+        StreamingResponseBody body = userExportService.export(after, gzip);
+
+        response.setContentType(UserExportService.NDJSON);
+        response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+
+        // The export is the only long-running request, so it gets its own async timeout instead of the global one
+        return new WebAsyncTask<>(userExportService.getTimeoutMs(), () -> {
+            body.writeTo(response.getOutputStream());
+            response.flushBuffer();
+            return null;
+        });
     }
 
     @GetMapping("/user")
-    public ResponseEntity<AppResponse<List<UserModel>>> getAll() {
-        return ResponseEntity.ok().body(new AppResponse<List<UserModel>>(usersService.getAll()));
+    public ResponseEntity<AppResponse<PageResponse<UserResponse>>> getAll(@Valid UserPageRequest request) {
+        PageResponse<UserResponse> result = usersService.getAll(request);
+
+        return ResponseEntity.ok().eTag(ETags.of(result)).body(new AppResponse<PageResponse<UserResponse>>(result));
     }
 
     @GetMapping("/user/{id}")
-    public ResponseEntity<AppResponse<UserModel>> get(@PathVariable Integer id) {
-        return ResponseEntity.ok().body(new AppResponse<UserModel>(usersService.get(id)));
+    public ResponseEntity<AppResponse<UserResponse>> get(@PathVariable Integer id, ServletWebRequest webRequest) {
+        if (webRequest.getHeader(HttpHeaders.IF_NONE_MATCH) != null
+                && webRequest.checkNotModified(ETags.of(usersService.getVersion(id)))) {
+            return null;
+        }
+
+        UserResponse result = usersService.get(id);
+
+        return ResponseEntity.ok().eTag(ETags.of(result.getVersion())).body(new AppResponse<UserResponse>(result));
     }
 
     @PutMapping("/user/{id}")
-    public ResponseEntity<AppResponse<UserModel>> put(@PathVariable Integer id, @Valid @RequestBody UserPutRequest request) {
-        return ResponseEntity.ok().body(new AppResponse<>(usersService.put(id, request)));
+    public ResponseEntity<AppResponse<UserResponse>> put(@PathVariable Integer id,
+                                                         @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+                                                         @Valid @RequestBody UserPutRequest request) {
+        UserResponse result = usersService.put(id, request, ETags.parseVersion(ifMatch));
+
+        return ResponseEntity.ok().eTag(ETags.of(result.getVersion())).body(new AppResponse<>(result));
     }
 
     @DeleteMapping("/user/{id}")
@@ -0,0 +1,15 @@
+package org.myblog.users.dto.request;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+public class IntrospectRequest {
+    @NotEmpty
+    @Size(max = 1000)
+    private List<String> tokens = new ArrayList<>();
+}
@@ -0,0 +1,27 @@
+package org.myblog.users.dto.request;
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import lombok.Data;
+import org.myblog.users.appenum.RoleEnum;
+import org.myblog.users.appenum.UserSortEnum;
+import org.springframework.data.domain.Sort;
+
+@Data
+public class UserPageRequest {
+    private String cursor;
+
+    @Min(1)
+    @Max(500)
+    private Integer size;
+
+    private UserSortEnum sort = UserSortEnum.ID;
+
+    private Sort.Direction direction = Sort.Direction.ASC;
+
+    private String username;
+
+    private String email;
+
+    private RoleEnum role;
+}
@@ -0,0 +1,11 @@
+package org.myblog.users.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class AvailabilityResponse {
+    private Boolean username;
+    private Boolean email;
+}
@@ -0,0 +1,14 @@
+package org.myblog.users.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+public class PageResponse<T> {
+    private List<T> items;
+    private String nextCursor;
+    private Long approximateTotal;
+}
@@ -0,0 +1,12 @@
+package org.myblog.users.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import org.myblog.users.appenum.RoleEnum;
+
+@Data
+@AllArgsConstructor
+public class RoleResponse {
+    private Integer id;
+    private RoleEnum name;
+}
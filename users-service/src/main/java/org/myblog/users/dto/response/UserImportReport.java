@@ -0,0 +1,23 @@
+package org.myblog.users.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+public class UserImportReport {
+    private long total;
+    private long imported;
+    private long failed;
+    private List<Failure> failures = new ArrayList<>();
+
+    @Data
+    @AllArgsConstructor
+    public static class Failure {
+        private long line;
+        private String username;
+        private String error;
+    }
+}
@@ -0,0 +1,19 @@
+package org.myblog.users.dto.response;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+public class UserResponse {
+    private Integer id;
+    private String username;
+    private String email;
+    private List<RoleResponse> roles;
+
+    @JsonIgnore
+    private int version;
+}
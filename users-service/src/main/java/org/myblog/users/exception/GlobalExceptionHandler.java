@@ -3,6 +3,9 @@ package org.myblog.users.exception;
 import org.apache.logging.log4j.Logger;
 import org.myblog.users.dto.AppResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
@@ -39,6 +42,32 @@ public class GlobalExceptionHandler {
         return ResponseEntity.badRequest().body(new AppResponse<>().addErrorFluent(ex.getField(), ex.getMessage()));
     }
 
+    @ExceptionHandler(ServiceOverloadedException.class)
+    public ResponseEntity<?> handle(ServiceOverloadedException ex) {
+        logger.warn(String.format("Service overloaded: %s", ex.getMessage()));
+
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(new AppResponse<>().addErrorFluent(ex.getMessage()));
+    }
+
+    @ExceptionHandler(TooManyRequestsException.class)
+    public ResponseEntity<?> handle(TooManyRequestsException ex) {
+        logger.warn(String.format("Too many requests: %s", ex.getMessage()));
+
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfterSeconds()))
+                .body(new AppResponse<>().addErrorFluent(ex.getMessage()));
+    }
+
+    @ExceptionHandler({PreconditionFailedException.class, OptimisticLockingFailureException.class})
+    public ResponseEntity<?> handlePreconditionFailed(RuntimeException ex) {
+        logger.warn(String.format("Precondition failed: %s", ex.getMessage()));
+
+        return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED)
+                .body(new AppResponse<>().addErrorFluent(new PreconditionFailedException().getMessage()));
+    }
+
     @ExceptionHandler(Exception.class)
     public ResponseEntity<?> handle(Exception ex) {
         logger.warn(String.format("Bad request: %s", ex.getMessage()));
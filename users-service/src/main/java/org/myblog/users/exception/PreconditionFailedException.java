@@ -0,0 +1,7 @@
+package org.myblog.users.exception;
+
+public class PreconditionFailedException extends RuntimeException {
+    public PreconditionFailedException() {
+        super("User was modified");
+    }
+}
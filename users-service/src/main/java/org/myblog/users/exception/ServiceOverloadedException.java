@@ -0,0 +1,7 @@
+package org.myblog.users.exception;
+
+public class ServiceOverloadedException extends RuntimeException {
+    public ServiceOverloadedException(String message) {
+        super(message);
+    }
+}
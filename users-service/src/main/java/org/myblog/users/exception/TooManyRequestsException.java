@@ -0,0 +1,14 @@
+package org.myblog.users.exception;
+
+public class TooManyRequestsException extends RuntimeException {
+    private final long retryAfterSeconds;
+
+    public TooManyRequestsException(long retryAfterSeconds) {
+        super("Too many requests");
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
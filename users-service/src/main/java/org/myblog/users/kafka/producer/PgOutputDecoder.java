@@ -0,0 +1,107 @@
+package org.myblog.users.kafka.producer;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Decodes the pgoutput (protocol version 1) messages the WAL relay needs; other message types yield {@code null}.
+ */
+public class PgOutputDecoder {
+    private final Map<Integer, Relation> relations = new HashMap<>();
+
+    public Message decode(ByteBuffer buffer) {
+        byte type = buffer.get();
+
+        return switch (type) {
+            case 'B' -> new Begin(buffer.getLong(), buffer.getLong(), buffer.getInt());
+            case 'C' -> {
+                buffer.get();
+                yield new Commit(buffer.getLong(), buffer.getLong(), buffer.getLong());
+            }
+            case 'R' -> {
+                Relation relation = readRelation(buffer);
+                relations.put(relation.id(), relation);
+                yield relation;
+            }
+            case 'I' -> readInsert(buffer);
+            default -> null;
+        };
+    }
+
+    private Relation readRelation(ByteBuffer buffer) {
+        int id = buffer.getInt();
+        String namespace = readString(buffer);
+        String name = readString(buffer);
+        buffer.get();
+
+        int count = buffer.getShort();
+        List<String> columns = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            buffer.get();
+            columns.add(readString(buffer));
+            buffer.getInt();
+            buffer.getInt();
+        }
+
+        return new Relation(id, namespace, name, columns);
+    }
+
+    private Insert readInsert(ByteBuffer buffer) {
+        Relation relation = relations.get(buffer.getInt());
+        if (relation == null) {
+            throw new IllegalStateException("Insert refers to an unknown relation");
+        }
+
+        buffer.get();
+
+        int count = buffer.getShort();
+        Map<String, String> values = new LinkedHashMap<>();
+        for (int i = 0; i < count; i++) {
+            byte kind = buffer.get();
+            String value = null;
+
+            if (kind == 't') {
+                byte[] bytes = new byte[buffer.getInt()];
+                buffer.get(bytes);
+                value = new String(bytes, StandardCharsets.UTF_8);
+            } else if (kind != 'n' && kind != 'u') {
+                throw new IllegalStateException(String.format("Unsupported tuple data kind '%c'", (char) kind));
+            }
+
+            values.put(relation.columns().get(i), value);
+        }
+
+        return new Insert(relation, values);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int start = buffer.position();
+        while (buffer.get() != 0) {
+        }
+
+        byte[] bytes = new byte[buffer.position() - start - 1];
+        buffer.get(start, bytes);
+
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    public interface Message {
+    }
+
+    public record Begin(long finalLsn, long commitTimestamp, int xid) implements Message {
+    }
+
+    public record Commit(long commitLsn, long endLsn, long commitTimestamp) implements Message {
+    }
+
+    public record Relation(int id, String namespace, String name, List<String> columns) implements Message {
+    }
+
+    public record Insert(Relation relation, Map<String, String> values) implements Message {
+    }
+}
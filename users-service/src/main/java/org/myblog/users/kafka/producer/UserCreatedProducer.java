@@ -1,25 +1,55 @@
 package org.myblog.users.kafka.producer;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.JsonMappingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import org.apache.logging.log4j.Logger;
+import org.myblog.users.appenum.OutboxRelayModeEnum;
 import org.myblog.users.kafka.event.UserCreatedEvent;
+import org.myblog.users.model.OutboxDeadLetterModel;
 import org.myblog.users.model.OutboxModel;
+import org.myblog.users.repository.OutboxDeadLetterRepository;
 import org.myblog.users.repository.OutboxRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.annotation.SchedulingConfigurer;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.scheduling.config.ScheduledTaskRegistrar;
 import org.springframework.stereotype.Component;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
 
 @Component
-public class UserCreatedProducer {
+public class UserCreatedProducer implements SchedulingConfigurer {
     public static final String TOPIC_NAME = "user.created";
 
+    private static final int PUBLISH_QUEUE_CAPACITY = 1000;
+
     @Autowired
     private Logger logger;
 
@@ -32,28 +62,356 @@ public class UserCreatedProducer {
     @Autowired
     private ObjectMapper objectMapper;
 
-    @Transactional
-    @Scheduled(fixedDelay = 1000)
-    public void watch() {
-        List<OutboxModel> messages = outboxRepository.findByTopic(TOPIC_NAME);
-
-        for (OutboxModel message : messages) {
-            Integer key = message.getKey();
-            UserCreatedEvent value = null;
-            try {
-                value = objectMapper.readValue(message.getValue(), UserCreatedEvent.class);
-            } catch (JsonProcessingException ex) {
-                logger.error(String.format("Unknown deserialization error: %s", ex.getMessage()));
-                return;
+    @Autowired
+    private OutboxDeadLetterRepository outboxDeadLetterRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${auth.app.outbox.relayMode:POLLING}")
+    private OutboxRelayModeEnum relayMode;
+
+    @Value("${auth.app.outbox.partitions:16}")
+    private int partitions;
+
+    @Value("${auth.app.outbox.partitionsPerClaim:4}")
+    private int partitionsPerClaim;
+
+    @Value("${auth.app.outbox.gracePeriodMs:5000}")
+    private long gracePeriodMs;
+
+    @Value("${auth.app.outbox.batchSize:500}")
+    private int batchSize;
+
+    @Value("${auth.app.outbox.maxInFlight:100}")
+    private int maxInFlight;
+
+    @Value("${auth.app.outbox.sendTimeoutMs:30000}")
+    private long sendTimeoutMs;
+
+    @Value("${auth.app.outbox.leaseMs:60000}")
+    private long leaseMs;
+
+    @Value("${auth.app.outbox.minDelayMs:10}")
+    private long minDelayMs;
+
+    @Value("${auth.app.outbox.maxDelayMs:1000}")
+    private long maxDelayMs;
+
+    @Value("${auth.app.outbox.maxAttempts:10}")
+    private int maxAttempts;
+
+    @Value("${auth.app.outbox.backoffMs:1000}")
+    private long backoffMs;
+
+    @Value("${auth.app.outbox.maxBackoffMs:300000}")
+    private long maxBackoffMs;
+
+    private volatile long delayMs;
+
+    private final AtomicLong stuckMessages = new AtomicLong();
+
+    private final AtomicLong deadLetters = new AtomicLong();
+
+    private final AtomicLong oldestAgeSeconds = new AtomicLong();
+
+    private final AtomicLong nextRetryAtMs = new AtomicLong();
+
+    private Counter relayed;
+
+    private Counter failed;
+
+    private Counter deadLettered;
+
+    private final Queue<Integer> published = new ConcurrentLinkedQueue<>();
+
+    private final ThreadPoolExecutor publisher = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(PUBLISH_QUEUE_CAPACITY),
+            new CustomizableThreadFactory("outbox-publisher-"),
+            new ThreadPoolExecutor.DiscardPolicy());
+
+    @PostConstruct
+    public void init() {
+        relayed = Counter.builder("outbox.relay").tag("result", "sent").register(meterRegistry);
+        failed = Counter.builder("outbox.relay").tag("result", "failed").register(meterRegistry);
+        deadLettered = Counter.builder("outbox.relay").tag("result", "dead_lettered").register(meterRegistry);
+
+        Gauge.builder("outbox.stuck", stuckMessages, AtomicLong::get)
+                .description("Outbox messages that failed at least one relay attempt")
+                .register(meterRegistry);
+        Gauge.builder("outbox.dead_letters", deadLetters, AtomicLong::get)
+                .register(meterRegistry);
+        Gauge.builder("outbox.oldest.age", oldestAgeSeconds, AtomicLong::get)
+                .baseUnit("seconds")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void configureTasks(ScheduledTaskRegistrar taskRegistrar) {
+        delayMs = maxDelayMs;
+
+        taskRegistrar.addTriggerTask(this::poll, context -> {
+            Instant last = context.lastCompletion();
+
+            return (last != null ? last : Instant.now()).plusMillis(delayMs);
+        });
+    }
+
+    public void publishAfterCommit(OutboxModel message, UserCreatedEvent event) {
+        if (relayMode != OutboxRelayModeEnum.POLLING || !TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                publisher.execute(() -> publish(message, event));
             }
+        });
+    }
+
+    @PreDestroy
+    public void destroy() {
+        publisher.shutdown();
+    }
+
+    public CompletableFuture<?> send(OutboxModel message) {
+        UserCreatedEvent value;
+        try {
+            value = objectMapper.readValue(message.getValue(), UserCreatedEvent.class);
+        } catch (JsonProcessingException ex) {
+            logger.error(String.format("Unknown deserialization error: %s", ex.getMessage()));
+            deadLetter(message, ex.getMessage());
+            return CompletableFuture.completedFuture(null);
+        }
+
+        return kafkaTemplate.send(TOPIC_NAME, message.getKey(), value);
+    }
+
+    public void acknowledge(List<Integer> ids) {
+        if (!ids.isEmpty()) {
+            outboxRepository.deleteByIds(ids);
+            relayed.increment(ids.size());
+        }
+    }
+
+    public void retryLater(OutboxModel message, String error) {
+        retryLater(message, error, Instant.now());
+    }
+
+    public void park(OutboxModel message) {
+        Instant now = Instant.now();
+        outboxRepository.markFailed(message.getId(), message.getAttempts(), now, "Waiting for an earlier message with the same key");
+        retryAt(now);
+    }
+
+    public boolean hasEarlierMessage(OutboxModel message) {
+        return outboxRepository.existsByTopicAndKeyAndIdLessThan(message.getTopic(), message.getKey(), message.getId());
+    }
+
+    public List<Integer> findHandedOverKeys() {
+        return outboxRepository.findHandedOverKeys(TOPIC_NAME);
+    }
 
-            try {
-                kafkaTemplate.send(TOPIC_NAME, key, value).get();
-            } catch (InterruptedException | ExecutionException e) {
-                throw new RuntimeException(e);
+    public int handOverExisting() {
+        Instant now = Instant.now();
+        int result = outboxRepository.handOver(TOPIC_NAME, now);
+        retryAt(now);
+
+        return result;
+    }
+
+    public int watch() {
+        // With WAL relaying the poller only serves handed-over rows, so it stays off the database until one is due
+        if (relayMode == OutboxRelayModeEnum.WAL && System.currentTimeMillis() < nextRetryAtMs.get()) {
+            return 0;
+        }
+
+        List<OutboxModel> claimed = transactionTemplate.execute(status -> claim());
+        int result = claimed != null ? relay(claimed) : 0;
+
+        if (relayMode == OutboxRelayModeEnum.WAL && result == 0) {
+            nextRetryAtMs.set(Long.MAX_VALUE);
+
+            Instant next = outboxRepository.findNextAttemptAt(TOPIC_NAME);
+            retryAt(next != null ? next : Instant.now().plusMillis(maxBackoffMs));
+        }
+
+        return result;
+    }
+
+    private void retryAt(Instant at) {
+        nextRetryAtMs.accumulateAndGet(at.toEpochMilli(), Math::min);
+    }
+
+    private List<OutboxModel> claim() {
+        List<Integer> slots = outboxRepository.lockPartitions(partitions, partitionsPerClaim);
+        if (slots.isEmpty()) {
+            return List.of();
+        }
+
+        Instant now = Instant.now();
+        List<OutboxModel> result = outboxRepository.findBatch(TOPIC_NAME, partitions, slots, now.minusMillis(gracePeriodMs), now,
+                relayMode == OutboxRelayModeEnum.WAL, batchSize);
+        if (!result.isEmpty()) {
+            outboxRepository.lease(result.stream().map(OutboxModel::getId).toList(), now.plusMillis(leaseMs));
+        }
+
+        return result;
+    }
+
+    private int relay(List<OutboxModel> messages) {
+        if (messages.isEmpty()) {
+            return 0;
+        }
+
+        Semaphore inFlight = new Semaphore(maxInFlight);
+        Set<Integer> sent = ConcurrentHashMap.newKeySet();
+        Map<Integer, String> errors = new ConcurrentHashMap<>();
+        List<OutboxModel> pending = new ArrayList<>(messages.size());
+        List<CompletableFuture<?>> futures = new ArrayList<>(messages.size());
+
+        try {
+            for (OutboxModel message : messages) {
+                UserCreatedEvent value;
+                try {
+                    value = objectMapper.readValue(message.getValue(), UserCreatedEvent.class);
+                } catch (JsonProcessingException ex) {
+                    logger.error(String.format("Unknown deserialization error: %s", ex.getMessage()));
+                    deadLetter(message, ex.getMessage());
+                    continue;
+                }
+
+                pending.add(message);
+                inFlight.acquire();
+                try {
+                    futures.add(kafkaTemplate.send(TOPIC_NAME, message.getKey(), value)
+                            .whenComplete((result, ex) -> {
+                                inFlight.release();
+
+                                if (ex == null) {
+                                    sent.add(message.getId());
+                                } else {
+                                    errors.put(message.getId(), String.valueOf(ex.getMessage()));
+                                }
+                            }));
+                } catch (RuntimeException ex) {
+                    inFlight.release();
+                    errors.put(message.getId(), String.valueOf(ex.getMessage()));
+                }
+            }
+
+            CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new))
+                    .get(sendTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | TimeoutException ex) {
+            logger.warn("Outbox batch was relayed partially: {}", ex.getMessage());
+        }
+
+        List<Integer> ids = new ArrayList<>(sent);
+        if (!ids.isEmpty()) {
+            outboxRepository.deleteByIds(ids);
+            relayed.increment(ids.size());
+        }
+
+        Instant now = Instant.now();
+        for (OutboxModel message : pending) {
+            if (!sent.contains(message.getId())) {
+                retryLater(message, errors.getOrDefault(message.getId(), "Send was not acknowledged in time"), now);
+            }
+        }
+
+        return messages.size();
+    }
+
+    private void retryLater(OutboxModel message, String error, Instant now) {
+        int attempts = message.getAttempts() + 1;
+        message.setAttempts(attempts);
+
+        if (attempts >= maxAttempts) {
+            deadLetter(message, error);
+            return;
+        }
+
+        long retryInMs = Math.min(maxBackoffMs, backoffMs * (1L << Math.min(attempts - 1, 30)));
+        outboxRepository.markFailed(message.getId(), attempts, now.plusMillis(retryInMs), OutboxModel.truncateError(error));
+        retryAt(now.plusMillis(retryInMs));
+        failed.increment();
+
+        logger.warn("Outbox message {} failed attempt {}, next in {} ms: {}", message.getId(), attempts, retryInMs, error);
+    }
+
+    private void deadLetter(OutboxModel message, String error) {
+        transactionTemplate.execute(status -> {
+            outboxDeadLetterRepository.save(new OutboxDeadLetterModel(message, error));
+            return outboxRepository.deleteByIds(List.of(message.getId()));
+        });
+        deadLettered.increment();
+
+        logger.error("Outbox message {} was moved to dead letters after {} attempts: {}", message.getId(), message.getAttempts(), error);
+    }
+
+    @Scheduled(fixedDelayString = "${auth.app.outbox.statsMs:30000}")
+    public void refreshStats() {
+        stuckMessages.set(outboxRepository.countByAttemptsGreaterThan(0));
+        deadLetters.set(outboxDeadLetterRepository.count());
+
+        Instant oldest = outboxRepository.findOldestCreatedAt();
+        oldestAgeSeconds.set(oldest != null ? Math.max(0, Duration.between(oldest, Instant.now()).toSeconds()) : 0);
+    }
+
+    private void publish(OutboxModel message, UserCreatedEvent event) {
+        try {
+            kafkaTemplate.send(TOPIC_NAME, message.getKey(), event).whenComplete((result, ex) -> {
+                if (ex != null) {
+                    logger.warn("Outbox message {} is left for the relay: {}", message.getId(), ex.getMessage());
+                    return;
+                }
+
+                published.add(message.getId());
+                publisher.execute(this::deletePublished);
+            });
+        } catch (RuntimeException ex) {
+            logger.warn("Outbox message {} is left for the relay: {}", message.getId(), ex.getMessage());
+        }
+    }
+
+    private void deletePublished() {
+        List<Integer> ids = new ArrayList<>();
+        Integer id;
+        while ((id = published.poll()) != null) {
+            ids.add(id);
+
+            if (ids.size() >= batchSize || published.isEmpty()) {
+                try {
+                    outboxRepository.deleteByIds(ids);
+                } catch (RuntimeException ex) {
+                    logger.warn("Cannot delete {} published outbox messages: {}", ids.size(), ex.getMessage());
+                }
+                ids = new ArrayList<>();
             }
+        }
+    }
+
+    private void poll() {
+        int claimed;
+        try {
+            claimed = watch();
+        } catch (RuntimeException ex) {
+            logger.warn("Outbox relay failed: {}", ex.getMessage());
+            claimed = 0;
+        }
 
-            outboxRepository.delete(message);
+        if (claimed >= batchSize) {
+            delayMs = 0;
+        } else if (claimed > 0) {
+            delayMs = minDelayMs;
+        } else {
+            delayMs = Math.min(maxDelayMs, Math.max(minDelayMs, delayMs * 2));
         }
     }
 }
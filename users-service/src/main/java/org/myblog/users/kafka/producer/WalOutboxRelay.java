@@ -0,0 +1,358 @@
+package org.myblog.users.kafka.producer;
+
+import org.apache.logging.log4j.Logger;
+import org.myblog.users.model.OutboxModel;
+import org.postgresql.PGConnection;
+import org.postgresql.PGProperty;
+import org.postgresql.replication.LogSequenceNumber;
+import org.postgresql.replication.PGReplicationStream;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+@Component
+@ConditionalOnProperty(name = "auth.app.outbox.relayMode", havingValue = "WAL")
+public class WalOutboxRelay implements SmartLifecycle {
+    private static final String OUTBOX_TABLE = "outbox_model";
+
+    @Autowired
+    private Logger logger;
+
+    @Autowired
+    private DataSourceProperties dataSourceProperties;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private UserCreatedProducer userCreatedProducer;
+
+    @Value("${auth.app.outbox.wal.slotName:users_outbox}")
+    private String slotName;
+
+    @Value("${auth.app.outbox.wal.publicationName:users_outbox}")
+    private String publicationName;
+
+    @Value("${auth.app.outbox.wal.statusIntervalMs:1000}")
+    private long statusIntervalMs;
+
+    @Value("${auth.app.outbox.wal.restartDelayMs:5000}")
+    private long restartDelayMs;
+
+    @Value("${auth.app.outbox.maxInFlight:100}")
+    private int maxInFlight;
+
+    @Value("${auth.app.outbox.sendTimeoutMs:30000}")
+    private long sendTimeoutMs;
+
+    private final Set<Integer> parkedKeys = new HashSet<>();
+
+    private final Map<Integer, PendingRow> lastByKey = new HashMap<>();
+
+    private volatile boolean running;
+
+    private Thread thread;
+
+    @Override
+    public synchronized void start() {
+        ensurePublicationAndSlot();
+
+        running = true;
+        thread = new Thread(this::run, "outbox-wal-relay");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    public synchronized void stop() {
+        running = false;
+
+        if (thread != null) {
+            thread.interrupt();
+            try {
+                thread.join(TimeUnit.SECONDS.toMillis(10));
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    public void ensurePublicationAndSlot() {
+        Integer publications = jdbcTemplate.queryForObject(
+                "select count(*) from pg_publication where pubname = ?", Integer.class, publicationName);
+        if (publications == null || publications == 0) {
+            jdbcTemplate.execute(String.format("create publication %s for table %s with (publish = 'insert')",
+                    quoteIdentifier(publicationName), OUTBOX_TABLE));
+            logger.info("Created publication {}", publicationName);
+        }
+
+        Integer slots = jdbcTemplate.queryForObject(
+                "select count(*) from pg_replication_slots where slot_name = ?", Integer.class, slotName);
+        if (slots == null || slots == 0) {
+            jdbcTemplate.queryForObject("select slot_name from pg_create_logical_replication_slot(?, 'pgoutput')", String.class, slotName);
+
+            int handedOver = userCreatedProducer.handOverExisting();
+            logger.warn("Created replication slot {}; {} outbox rows written before it were handed to the poller", slotName, handedOver);
+        }
+    }
+
+    private void run() {
+        while (running) {
+            try (Connection connection = openReplicationConnection()) {
+                stream(connection.unwrap(PGConnection.class));
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception ex) {
+                logger.warn("WAL outbox relay stopped, restarting in {} ms: {}", restartDelayMs, ex.getMessage());
+            }
+
+            try {
+                Thread.sleep(restartDelayMs);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private void stream(PGConnection connection) throws Exception {
+        PGReplicationStream stream = connection.getReplicationAPI()
+                .replicationStream()
+                .logical()
+                .withSlotName(slotName)
+                .withSlotOption("proto_version", 1)
+                .withSlotOption("publication_names", publicationName)
+                .withStatusInterval((int) statusIntervalMs, TimeUnit.MILLISECONDS)
+                .start();
+
+        try {
+            PgOutputDecoder decoder = new PgOutputDecoder();
+            Semaphore inFlight = new Semaphore(maxInFlight);
+            Deque<PendingCommit> pending = new ArrayDeque<>();
+            List<PendingRow> rows = new ArrayList<>();
+
+            // Rows handed to the poller keep next_attempt_at set, so the parked keys survive a restart
+            lastByKey.clear();
+            parkedKeys.clear();
+            parkedKeys.addAll(userCreatedProducer.findHandedOverKeys());
+
+            boolean inTransaction = false;
+
+            while (running) {
+                ByteBuffer buffer = stream.readPending();
+
+                if (buffer == null) {
+                    confirm(stream, pending);
+
+                    LogSequenceNumber received = stream.getLastReceiveLSN();
+                    if (pending.isEmpty() && !inTransaction && received.asLong() > stream.getLastFlushedLSN().asLong()) {
+                        stream.setFlushedLSN(received);
+                        stream.setAppliedLSN(received);
+                    }
+
+                    TimeUnit.MILLISECONDS.sleep(10);
+                    continue;
+                }
+
+                PgOutputDecoder.Message message = decoder.decode(buffer);
+
+                if (message instanceof PgOutputDecoder.Begin) {
+                    inTransaction = true;
+                } else if (message instanceof PgOutputDecoder.Insert insert && OUTBOX_TABLE.equals(insert.relation().name())) {
+                    OutboxModel outbox = toOutbox(insert.values());
+
+                    if (UserCreatedProducer.TOPIC_NAME.equals(outbox.getTopic())) {
+                        rows.add(relay(outbox, inFlight));
+                    }
+                } else if (message instanceof PgOutputDecoder.Commit commit) {
+                    pending.add(new PendingCommit(LogSequenceNumber.valueOf(commit.endLsn()), rows));
+                    rows = new ArrayList<>();
+                    inTransaction = false;
+
+                    confirm(stream, pending);
+                }
+            }
+        } finally {
+            stream.close();
+        }
+    }
+
+    private PendingRow relay(OutboxModel message, Semaphore inFlight) throws InterruptedException {
+        Integer key = message.getKey();
+        if (key == null) {
+            return send(message, inFlight);
+        }
+
+        PendingRow previous = lastByKey.get(key);
+        boolean blocked = previous != null
+                ? previous.isParked() || !previous.await()
+                : parkedKeys.contains(key) && userCreatedProducer.hasEarlierMessage(message);
+
+        PendingRow result;
+        if (blocked) {
+            parkedKeys.add(key);
+            result = new PendingRow(message, null, System.nanoTime());
+        } else {
+            parkedKeys.remove(key);
+            result = send(message, inFlight);
+        }
+
+        lastByKey.put(key, result);
+
+        return result;
+    }
+
+    private PendingRow send(OutboxModel message, Semaphore inFlight) throws InterruptedException {
+        long deadlineNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(sendTimeoutMs);
+
+        if (!inFlight.tryAcquire(sendTimeoutMs, TimeUnit.MILLISECONDS)) {
+            return new PendingRow(message, CompletableFuture.failedFuture(new TimeoutException("No send slot was freed in time")),
+                    deadlineNanos);
+        }
+
+        CompletableFuture<?> sent;
+        try {
+            sent = userCreatedProducer.send(message);
+        } catch (RuntimeException ex) {
+            sent = CompletableFuture.failedFuture(ex);
+        }
+
+        return new PendingRow(message, sent.whenComplete((value, ex) -> inFlight.release()), deadlineNanos);
+    }
+
+    private void confirm(PGReplicationStream stream, Deque<PendingCommit> pending) {
+        LogSequenceNumber confirmed = null;
+        List<Integer> acknowledged = new ArrayList<>();
+
+        while (!pending.isEmpty() && pending.peek().isDone()) {
+            PendingCommit head = pending.poll();
+
+            for (PendingRow i : head.rows()) {
+                Integer key = i.message().getKey();
+                String failure = i.failure();
+
+                if (i.isParked()) {
+                    userCreatedProducer.park(i.message());
+                } else if (failure != null) {
+                    if (key != null) {
+                        parkedKeys.add(key);
+                    }
+                    userCreatedProducer.retryLater(i.message(), failure);
+                } else {
+                    acknowledged.add(i.message().getId());
+                }
+
+                if (key != null) {
+                    lastByKey.remove(key, i);
+                }
+            }
+
+            confirmed = head.lsn();
+        }
+
+        if (confirmed != null) {
+            userCreatedProducer.acknowledge(acknowledged);
+
+            stream.setFlushedLSN(confirmed);
+            stream.setAppliedLSN(confirmed);
+        }
+    }
+
+    private Connection openReplicationConnection() throws SQLException {
+        Properties properties = new Properties();
+        PGProperty.USER.set(properties, dataSourceProperties.determineUsername());
+        PGProperty.PASSWORD.set(properties, dataSourceProperties.determinePassword());
+        PGProperty.REPLICATION.set(properties, "database");
+        PGProperty.ASSUME_MIN_SERVER_VERSION.set(properties, "10");
+        PGProperty.PREFER_QUERY_MODE.set(properties, "simple");
+
+        return DriverManager.getConnection(dataSourceProperties.determineUrl(), properties);
+    }
+
+    private static OutboxModel toOutbox(Map<String, String> values) {
+        OutboxModel result = new OutboxModel();
+        result.setId(Integer.valueOf(values.get("id")));
+        result.setTopic(values.get("topic"));
+        result.setKey(values.get("key") != null ? Integer.valueOf(values.get("key")) : null);
+        result.setValue(values.get("value"));
+
+        return result;
+    }
+
+    private static String quoteIdentifier(String value) {
+        return "\"" + value.replace("\"", "\"\"") + "\"";
+    }
+
+    private record PendingRow(OutboxModel message, CompletableFuture<?> sent, long deadlineNanos) {
+        boolean isParked() {
+            return sent == null;
+        }
+
+        boolean isDone() {
+            return sent == null || sent.isDone() || System.nanoTime() - deadlineNanos >= 0;
+        }
+
+        boolean await() throws InterruptedException {
+            try {
+                sent.get(Math.max(0, deadlineNanos - System.nanoTime()), TimeUnit.NANOSECONDS);
+                return true;
+            } catch (ExecutionException | CancellationException | TimeoutException ex) {
+                return false;
+            }
+        }
+
+        String failure() {
+            if (sent == null || (sent.isDone() && !sent.isCompletedExceptionally())) {
+                return null;
+            }
+
+            if (!sent.isDone()) {
+                return "Send was not acknowledged in time";
+            }
+
+            try {
+                sent.join();
+                return null;
+            } catch (CompletionException | CancellationException ex) {
+                return String.valueOf((ex.getCause() != null ? ex.getCause() : ex).getMessage());
+            }
+        }
+    }
+
+    private record PendingCommit(LogSequenceNumber lsn, List<PendingRow> rows) {
+        boolean isDone() {
+            return rows.stream().allMatch(PendingRow::isDone);
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package org.myblog.users.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+@Entity
+@Table(name = "outbox_dead_letters")
+@Data
+@NoArgsConstructor
+public class OutboxDeadLetterModel {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Integer id;
+
+    private Integer outboxId;
+
+    private String topic;
+
+    private Integer key;
+
+    @Column(columnDefinition = "text")
+    private String value;
+
+    private int attempts;
+
+    @Column(length = OutboxModel.MAX_ERROR_LENGTH)
+    private String lastError;
+
+    private Instant createdAt;
+
+    private Instant failedAt;
+
+    public OutboxDeadLetterModel(OutboxModel source, String error) {
+        this.outboxId = source.getId();
+        this.topic = source.getTopic();
+        this.key = source.getKey();
+        this.value = source.getValue();
+        this.attempts = source.getAttempts();
+        this.lastError = OutboxModel.truncateError(error);
+        this.createdAt = source.getCreatedAt();
+        this.failedAt = Instant.now();
+    }
+}
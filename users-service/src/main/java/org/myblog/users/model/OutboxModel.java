@@ -1,16 +1,32 @@
 package org.myblog.users.model;
 
+import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Table;
 import lombok.Data;
+import org.hibernate.annotations.ColumnDefault;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.Instant;
 
 @Entity
+@Table(name = "outbox_model",
+        indexes = {
+                @Index(name = "ix_outbox_model_topic_key_id", columnList = "topic, key, id"),
+                @Index(name = "ix_outbox_model_next_attempt_at", columnList = "next_attempt_at")
+        })
 @Data
 public class OutboxModel {
+    public static final int MAX_ERROR_LENGTH = 1000;
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "outbox_model_seq")
+    @SequenceGenerator(name = "outbox_model_seq", sequenceName = "outbox_model_seq", allocationSize = 50)
     private Integer id;
 
     private String topic;
@@ -18,4 +34,24 @@ public class OutboxModel {
     private Integer key;
 
     private String value;
+
+    @CreationTimestamp
+    private Instant createdAt;
+
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private int attempts;
+
+    private Instant nextAttemptAt;
+
+    @Column(length = MAX_ERROR_LENGTH)
+    private String lastError;
+
+    public static String truncateError(String error) {
+        if (error == null || error.length() <= MAX_ERROR_LENGTH) {
+            return error;
+        }
+
+        return error.substring(0, MAX_ERROR_LENGTH);
+    }
 }
@@ -0,0 +1,14 @@
+package org.myblog.users.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Entity
+@Table(name = "outbox_partitions")
+@Data
+@NoArgsConstructor
+public class OutboxPartitionModel {
+    @Id
+    private Integer id;
+}
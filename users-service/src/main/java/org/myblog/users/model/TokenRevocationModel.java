@@ -0,0 +1,26 @@
+package org.myblog.users.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+@Entity
+@Table(name = "token_revocations")
+@Data
+@NoArgsConstructor
+public class TokenRevocationModel {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Integer id;
+
+    private Integer userId;
+
+    private Integer tokenGeneration;
+
+    @Column(length = 32)
+    private String tokenId;
+
+    private Instant expiresAt;
+}
@@ -1,11 +1,13 @@
 package org.myblog.users.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Size;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.ColumnDefault;
 
 import java.util.HashSet;
 import java.util.Set;
@@ -13,14 +15,18 @@ import java.util.Set;
 @Entity
 @Table(name = "users",
         uniqueConstraints = {
-                @UniqueConstraint(columnNames = "username"),
-                @UniqueConstraint(columnNames = "email")
+                @UniqueConstraint(name = UserModel.UK_USERNAME, columnNames = "username"),
+                @UniqueConstraint(name = UserModel.UK_EMAIL, columnNames = "email")
         })
 @Data
 @NoArgsConstructor
 public class UserModel {
+    public static final String UK_USERNAME = "uk_users_username";
+    public static final String UK_EMAIL = "uk_users_email";
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "users_seq")
+    @SequenceGenerator(name = "users_seq", sequenceName = "users_seq", allocationSize = 50)
     private Integer id;
 
     @NotBlank
@@ -42,9 +48,20 @@ public class UserModel {
             inverseJoinColumns = @JoinColumn(name = "role_id"))
     private Set<RoleModel> roles = new HashSet<>();
 
+    @JsonIgnore
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private int tokenGeneration;
+
+    @JsonIgnore
+    @Version
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private int version;
+
     public UserModel(String username, String email, String password) {
         this.username = username;
         this.email = email;
         this.password = password;
     }
-}
\ No newline at end of file
+}
\ No newline at end of file
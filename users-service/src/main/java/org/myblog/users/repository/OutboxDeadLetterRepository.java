@@ -0,0 +1,7 @@
+package org.myblog.users.repository;
+
+import org.myblog.users.model.OutboxDeadLetterModel;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface OutboxDeadLetterRepository extends JpaRepository<OutboxDeadLetterModel, Integer> {
+}
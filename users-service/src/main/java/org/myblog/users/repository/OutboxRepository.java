@@ -2,9 +2,80 @@ package org.myblog.users.repository;
 
 import org.myblog.users.model.OutboxModel;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
 
 public interface OutboxRepository extends JpaRepository<OutboxModel, Integer> {
-    List<OutboxModel> findByTopic(String topic);
+    @Query(value = """
+            select p.id
+              from outbox_partitions p
+             where p.id < :partitions
+             order by random()
+             limit :limit
+               for update skip locked""", nativeQuery = true)
+    List<Integer> lockPartitions(int partitions, int limit);
+
+    @Query(value = """
+            select *
+              from outbox_model o
+             where o.topic = :topic
+               and mod(o.key, :partitions) in (:slots)
+               and (o.created_at is null or o.created_at < :createdBefore)
+               and (o.next_attempt_at is null or o.next_attempt_at <= :now)
+               and (:retriesOnly = false or o.next_attempt_at is not null)
+               and not exists (select 1
+                                 from outbox_model p
+                                where p.topic = o.topic
+                                  and p.key = o.key
+                                  and p.id < o.id)
+             order by o.id
+             limit :limit""", nativeQuery = true)
+    List<OutboxModel> findBatch(String topic, int partitions, Collection<Integer> slots, Instant createdBefore, Instant now,
+                                boolean retriesOnly, int limit);
+
+    boolean existsByTopicAndKeyAndIdLessThan(String topic, Integer key, Integer id);
+
+    @Query("select distinct o.key from OutboxModel o where o.topic = :topic and o.nextAttemptAt is not null")
+    List<Integer> findHandedOverKeys(String topic);
+
+    @Query("select min(o.nextAttemptAt) from OutboxModel o where o.topic = :topic")
+    Instant findNextAttemptAt(String topic);
+
+    @Modifying
+    @Transactional
+    @Query("update OutboxModel o set o.nextAttemptAt = :now where o.topic = :topic and o.nextAttemptAt is null")
+    int handOver(String topic, Instant now);
+
+    @Modifying
+    @Transactional
+    @Query("update OutboxModel o set o.nextAttemptAt = :leasedUntil where o.id in :ids")
+    int lease(Collection<Integer> ids, Instant leasedUntil);
+
+    @Modifying
+    @Transactional
+    @Query("update OutboxModel o set o.attempts = :attempts, o.nextAttemptAt = :nextAttemptAt, o.lastError = :lastError where o.id = :id")
+    int markFailed(Integer id, int attempts, Instant nextAttemptAt, String lastError);
+
+    long countByAttemptsGreaterThan(int attempts);
+
+    @Query("select min(o.createdAt) from OutboxModel o")
+    Instant findOldestCreatedAt();
+
+    @Modifying
+    @Transactional
+    @Query(value = """
+            insert into outbox_partitions (id)
+            select generate_series(0, :partitions - 1)
+            on conflict do nothing""", nativeQuery = true)
+    int ensurePartitions(int partitions);
+
+    @Modifying
+    @Transactional
+    @Query("delete from OutboxModel o where o.id in :ids")
+    int deleteByIds(Collection<Integer> ids);
 }
@@ -8,7 +8,7 @@ import org.springframework.stereotype.Repository;
 import java.util.Optional;
 
 @Repository
-public interface RoleRepository extends JpaRepository<RoleModel, Long> {
+public interface RoleRepository extends JpaRepository<RoleModel, Integer> {
     Optional<RoleModel> findByName(RoleEnum name);
 
     boolean existsByName(RoleEnum name);
@@ -0,0 +1,22 @@
+package org.myblog.users.repository;
+
+import org.myblog.users.model.TokenRevocationModel;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+
+@Repository
+public interface TokenRevocationRepository extends JpaRepository<TokenRevocationModel, Integer> {
+    List<TokenRevocationModel> findByIdGreaterThanOrderByIdAsc(Integer id, Limit limit);
+
+    @Modifying
+    @Transactional
+    @Query("delete from TokenRevocationModel r where r.expiresAt < :now")
+    int deleteExpired(Instant now);
+}
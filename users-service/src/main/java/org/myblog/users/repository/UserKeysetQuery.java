@@ -0,0 +1,18 @@
+package org.myblog.users.repository;
+
+import org.myblog.users.appenum.RoleEnum;
+import org.myblog.users.appenum.UserSortEnum;
+import org.springframework.data.domain.Sort;
+
+public record UserKeysetQuery(UserSortEnum sort,
+                              Sort.Direction direction,
+                              Integer afterId,
+                              String afterUsername,
+                              String usernamePrefix,
+                              String emailPrefix,
+                              RoleEnum role,
+                              int limit) {
+    public boolean isFiltered() {
+        return usernamePrefix != null || emailPrefix != null || role != null;
+    }
+}
@@ -1,16 +1,91 @@
 package org.myblog.users.repository;
 
 import org.myblog.users.model.UserModel;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface UserRepository extends JpaRepository<UserModel, Integer> {
+public interface UserRepository extends JpaRepository<UserModel, Integer>, UserRepositoryCustom {
+    @EntityGraph(attributePaths = "roles")
     Optional<UserModel> findByUsername(String username);
 
+    @EntityGraph(attributePaths = "roles")
+    Optional<UserModel> findWithRolesById(Integer id);
+
+    @Query(value = """
+            select u.id as id, u.username as username, u.email as email, u.version as version,
+                   (select string_agg(cast(ur.role_id as text), ',' order by ur.role_id)
+                      from user_roles ur
+                     where ur.user_id = u.id) as "roleIds"
+              from users u
+             where u.id = :id""", nativeQuery = true)
+    Optional<UserView> findViewById(Integer id);
+
+    @Query("select u.version from UserModel u where u.id = :id")
+    Optional<Integer> findVersionById(Integer id);
+
     Boolean existsByUsername(String username);
 
     Boolean existsByEmail(String email);
+
+    @Query("select u.id as id, u.username as username, u.email as email from UserModel u where u.id > :afterId order by u.id")
+    List<IdentityView> findIdentitiesAfter(Integer afterId, Limit limit);
+
+    @Query("select u.username from UserModel u where u.username in :usernames")
+    List<String> findExistingUsernames(Collection<String> usernames);
+
+    @Query("select u.email from UserModel u where u.email in :emails")
+    List<String> findExistingEmails(Collection<String> emails);
+
+    @Query("select u.id as id, u.tokenGeneration as tokenGeneration from UserModel u where u.tokenGeneration > 0")
+    List<TokenGenerationView> findTokenGenerations();
+
+    @Query("select u.id as id, u.password as password from UserModel u where u.id > :afterId order by u.id")
+    List<PasswordView> findPasswordsAfter(Integer afterId, Limit limit);
+
+    @Modifying
+    @Transactional
+    @Query("update UserModel u set u.password = :newPassword where u.id = :id and u.password = :oldPassword")
+    int updatePasswordIfUnchanged(Integer id, String oldPassword, String newPassword);
+
+    interface UserView {
+        Integer getId();
+
+        String getUsername();
+
+        String getEmail();
+
+        Integer getVersion();
+
+        String getRoleIds();
+    }
+
+    interface TokenGenerationView {
+        Integer getId();
+
+        Integer getTokenGeneration();
+    }
+
+    interface IdentityView {
+        Integer getId();
+
+        String getUsername();
+
+        String getEmail();
+    }
+
+    interface PasswordView {
+        Integer getId();
+
+        String getPassword();
+    }
 }
@@ -0,0 +1,9 @@
+package org.myblog.users.repository;
+
+import java.util.List;
+
+public interface UserRepositoryCustom {
+    List<UserRepository.UserView> findPage(UserKeysetQuery query);
+
+    Long estimateCount();
+}
@@ -0,0 +1,122 @@
+package org.myblog.users.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Query;
+import org.myblog.users.appenum.UserSortEnum;
+import org.springframework.data.domain.Sort;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class UserRepositoryCustomImpl implements UserRepositoryCustom {
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<UserRepository.UserView> findPage(UserKeysetQuery query) {
+        StringBuilder sql = new StringBuilder("""
+                select u.id, u.username, u.email, u.version,
+                       (select string_agg(cast(ur.role_id as text), ',' order by ur.role_id)
+                          from user_roles ur
+                         where ur.user_id = u.id)
+                  from users u""");
+        List<String> where = new ArrayList<>();
+        Map<String, Object> parameters = new HashMap<>();
+
+        if (query.role() != null) {
+            where.add("exists (select 1 from user_roles ur join roles r on r.id = ur.role_id where ur.user_id = u.id and r.name = :role)");
+            parameters.put("role", query.role().name());
+        }
+
+        if (query.usernamePrefix() != null) {
+            where.add("u.username like :usernamePrefix escape '\\'");
+            parameters.put("usernamePrefix", likePrefix(query.usernamePrefix()));
+        }
+
+        if (query.emailPrefix() != null) {
+            where.add("u.email like :emailPrefix escape '\\'");
+            parameters.put("emailPrefix", likePrefix(query.emailPrefix()));
+        }
+
+        String comparison = query.direction() == Sort.Direction.ASC ? ">" : "<";
+        String order = query.direction() == Sort.Direction.ASC ? "asc" : "desc";
+
+        if (query.sort() == UserSortEnum.USERNAME) {
+            if (query.afterUsername() != null) {
+                where.add(String.format("(u.username %1$s :afterUsername or (u.username = :afterUsername and u.id %1$s :afterId))", comparison));
+                parameters.put("afterUsername", query.afterUsername());
+                parameters.put("afterId", query.afterId());
+            }
+        } else if (query.afterId() != null) {
+            where.add(String.format("u.id %s :afterId", comparison));
+            parameters.put("afterId", query.afterId());
+        }
+
+        if (!where.isEmpty()) {
+            sql.append(" where ").append(String.join(" and ", where));
+        }
+
+        if (query.sort() == UserSortEnum.USERNAME) {
+            sql.append(" order by u.username ").append(order).append(", u.id ").append(order);
+        } else {
+            sql.append(" order by u.id ").append(order);
+        }
+
+        Query page = entityManager.createNativeQuery(sql.toString())
+                .setMaxResults(query.limit());
+        parameters.forEach(page::setParameter);
+
+        List<?> rows = page.getResultList();
+        List<UserRepository.UserView> result = new ArrayList<>(rows.size());
+        for (Object i : rows) {
+            Object[] row = (Object[]) i;
+            result.add(new Row(((Number) row[0]).intValue(), (String) row[1], (String) row[2], ((Number) row[3]).intValue(), (String) row[4]));
+        }
+
+        return result;
+    }
+
+    @Override
+    public Long estimateCount() {
+        Number estimate = (Number) entityManager
+                .createNativeQuery("select reltuples from pg_class where oid = 'users'::regclass")
+                .getSingleResult();
+
+        // reltuples is -1 until the table has been vacuumed or analyzed; omit the total rather than scan
+        return estimate != null && estimate.longValue() >= 0 ? estimate.longValue() : null;
+    }
+
+    private static String likePrefix(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%";
+    }
+
+    private record Row(Integer id, String username, String email, Integer version, String roleIds) implements UserRepository.UserView {
+        @Override
+        public Integer getId() {
+            return id;
+        }
+
+        @Override
+        public String getUsername() {
+            return username;
+        }
+
+        @Override
+        public String getEmail() {
+            return email;
+        }
+
+        @Override
+        public Integer getVersion() {
+            return version;
+        }
+
+        @Override
+        public String getRoleIds() {
+            return roleIds;
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package org.myblog.users.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.apache.logging.log4j.Logger;
+import org.myblog.users.dto.response.AvailabilityResponse;
+import org.myblog.users.exception.RestIllegalArgumentException;
+import org.myblog.users.repository.UserRepository;
+import org.myblog.users.util.BloomFilter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.ToDoubleFunction;
+
+@Service
+public class AvailabilityService {
+    private static final int REBUILD_CHUNK_SIZE = 10000;
+
+    @Autowired
+    private Logger logger;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${auth.app.availability.expectedUsers:1000000}")
+    private long expectedUsers;
+
+    @Value("${auth.app.availability.falsePositiveProbability:0.01}")
+    private double falsePositiveProbability;
+
+    private volatile Filters filters;
+
+    private volatile Filters rebuilding;
+
+    private final Object swapLock = new Object();
+
+    private Counter filterNegative;
+
+    private Counter databaseTaken;
+
+    private Counter falsePositive;
+
+    @PostConstruct
+    public void init() {
+        filterNegative = Counter.builder("availability.checks").tag("result", "filter_negative").register(meterRegistry);
+        databaseTaken = Counter.builder("availability.checks").tag("result", "taken").register(meterRegistry);
+        falsePositive = Counter.builder("availability.checks").tag("result", "false_positive").register(meterRegistry);
+
+        registerGauges("username", Filters::usernames);
+        registerGauges("email", Filters::emails);
+
+        rebuild();
+    }
+
+    public AvailabilityResponse check(String username, String email) {
+        if (username == null && email == null) {
+            throw new RestIllegalArgumentException("username", "username or email is required");
+        }
+
+        Filters current = filters;
+
+        return new AvailabilityResponse(
+                username != null ? isAvailable(current.usernames(), username, userRepository::existsByUsername) : null,
+                email != null ? isAvailable(current.emails(), email, userRepository::existsByEmail) : null);
+    }
+
+    public void add(String username, String email) {
+        synchronized (swapLock) {
+            add(filters, username, email);
+            add(rebuilding, username, email);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${auth.app.availability.rebuildMs:300000}", initialDelayString = "${auth.app.availability.rebuildMs:300000}")
+    public synchronized void rebuild() {
+        long start = System.nanoTime();
+        Filters next = new Filters(
+                BloomFilter.create(expectedUsers, falsePositiveProbability),
+                BloomFilter.create(expectedUsers, falsePositiveProbability));
+        synchronized (swapLock) {
+            rebuilding = next;
+        }
+
+        long count = 0;
+        int afterId = 0;
+        List<UserRepository.IdentityView> chunk;
+        do {
+            chunk = userRepository.findIdentitiesAfter(afterId, Limit.of(REBUILD_CHUNK_SIZE));
+
+            for (UserRepository.IdentityView i : chunk) {
+                add(next, i.getUsername(), i.getEmail());
+                afterId = i.getId();
+            }
+            count += chunk.size();
+        } while (chunk.size() == REBUILD_CHUNK_SIZE);
+
+        synchronized (swapLock) {
+            filters = next;
+            rebuilding = null;
+        }
+
+        logger.info("Availability filters rebuilt from {} users in {} ms", count, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private boolean isAvailable(BloomFilter filter, String value, Predicate<String> exists) {
+        if (!filter.mightContain(value)) {
+            filterNegative.increment();
+            return true;
+        }
+
+        if (exists.test(value)) {
+            databaseTaken.increment();
+            return false;
+        }
+
+        falsePositive.increment();
+        return true;
+    }
+
+    private void registerGauges(String field, Function<Filters, BloomFilter> filter) {
+        gauge("availability.filter.bits", field, i -> filter.apply(i).bitSize());
+        gauge("availability.filter.hash.functions", field, i -> filter.apply(i).hashFunctions());
+        gauge("availability.filter.expected.insertions", field, i -> expectedUsers);
+        gauge("availability.filter.configured.fpp", field, i -> falsePositiveProbability);
+        gauge("availability.filter.estimated.fpp", field, i -> filter.apply(i).expectedFalsePositiveProbability());
+    }
+
+    private void gauge(String name, String field, ToDoubleFunction<Filters> value) {
+        Gauge.builder(name, this, i -> i.filters != null ? value.applyAsDouble(i.filters) : Double.NaN)
+                .tag("field", field)
+                .register(meterRegistry);
+    }
+
+    private static void add(Filters target, String username, String email) {
+        if (target == null) {
+            return;
+        }
+
+        if (username != null) {
+            target.usernames().put(username);
+        }
+
+        if (email != null) {
+            target.emails().put(email);
+        }
+    }
+
+    private record Filters(BloomFilter usernames, BloomFilter emails) {
+
+    }
+}
@@ -4,9 +4,12 @@ import jakarta.annotation.PostConstruct;
 import org.myblog.users.appenum.RoleEnum;
 import org.myblog.users.model.RoleModel;
 import org.myblog.users.model.UserModel;
+import org.myblog.users.repository.OutboxRepository;
 import org.myblog.users.repository.RoleRepository;
 import org.myblog.users.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
@@ -15,19 +18,35 @@ import java.util.HashSet;
 
 @Service
 public class DataInitializer {
+    private static final int SEQUENCE_ALLOCATION_SIZE = 50;
+
     private final UserRepository userRepository;
     private final RoleRepository roleRepository;
     private final PasswordEncoder encoder;
+    private final RoleRegistry roleRegistry;
+    private final JdbcTemplate jdbcTemplate;
+    private final OutboxRepository outboxRepository;
+    private final int outboxPartitions;
 
     @Autowired
-    public DataInitializer(UserRepository userRepository, RoleRepository roleRepository, PasswordEncoder encoder) {
+    public DataInitializer(UserRepository userRepository, RoleRepository roleRepository, PasswordEncoder encoder, RoleRegistry roleRegistry,
+                           JdbcTemplate jdbcTemplate, OutboxRepository outboxRepository,
+                           @Value("${auth.app.outbox.partitions:16}") int outboxPartitions) {
         this.userRepository = userRepository;
         this.roleRepository = roleRepository;
         this.encoder = encoder;
+        this.roleRegistry = roleRegistry;
+        this.jdbcTemplate = jdbcTemplate;
+        this.outboxRepository = outboxRepository;
+        this.outboxPartitions = outboxPartitions;
     }
 
     @PostConstruct
     public void init() {
+        alignSequence("users_seq", "users");
+        alignSequence("outbox_model_seq", "outbox_model");
+        outboxRepository.ensurePartitions(outboxPartitions);
+
         if (!roleRepository.existsByName(RoleEnum.ROLE_USER)) {
             RoleModel userRole = new RoleModel(RoleEnum.ROLE_USER);
             roleRepository.save(userRole);
@@ -37,6 +56,8 @@ public class DataInitializer {
 
             RoleModel adminRole = new RoleModel(RoleEnum.ROLE_ADMIN);
             roleRepository.save(adminRole);
+
+            roleRegistry.reload();
         }
 
         if (!userRepository.existsByUsername("admin")) {
@@ -44,14 +65,14 @@ public class DataInitializer {
             admin.setUsername("admin");
             admin.setPassword(encoder.encode("adminPassword"));
             admin.setEmail("admin@myblog.org");
-            admin.setRoles(new HashSet<RoleModel>(Arrays.asList(roleRepository.findByName(RoleEnum.ROLE_ADMIN).orElseThrow())));
+            admin.setRoles(new HashSet<RoleModel>(Arrays.asList(roleRegistry.reference(RoleEnum.ROLE_ADMIN))));
             userRepository.save(admin);
 
             UserModel moder = new UserModel();
             moder.setUsername("moderator");
             moder.setPassword(encoder.encode("moderatorPassword"));
             moder.setEmail("moderator@myblog.org");
-            moder.setRoles(new HashSet<RoleModel>(Arrays.asList(roleRepository.findByName(RoleEnum.ROLE_MODERATOR).orElseThrow())));
+            moder.setRoles(new HashSet<RoleModel>(Arrays.asList(roleRegistry.reference(RoleEnum.ROLE_MODERATOR))));
 
             userRepository.save(moder);
 
@@ -59,11 +80,20 @@ public class DataInitializer {
             maxsmg.setUsername("maxsmg");
             maxsmg.setPassword(encoder.encode("qweqwe"));
             maxsmg.setEmail("maxsmg@myblog.org");
-            maxsmg.setRoles(new HashSet<RoleModel>(Arrays.asList(roleRepository.findByName(RoleEnum.ROLE_USER).orElseThrow())));
+            maxsmg.setRoles(new HashSet<RoleModel>(Arrays.asList(roleRegistry.reference(RoleEnum.ROLE_USER))));
 
             userRepository.save(maxsmg);
 
 
         }
     }
+
+    private void alignSequence(String sequence, String table) {
+        Long maxId = jdbcTemplate.queryForObject("select coalesce(max(id), 0) from " + table, Long.class);
+        Long lastValue = jdbcTemplate.queryForObject("select last_value from " + sequence, Long.class);
+
+        if (maxId != null && lastValue != null && maxId > lastValue) {
+            jdbcTemplate.queryForObject("select setval(?::regclass, ?)", Long.class, sequence, maxId + SEQUENCE_ALLOCATION_SIZE);
+        }
+    }
 }
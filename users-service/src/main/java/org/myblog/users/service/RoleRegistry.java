@@ -0,0 +1,72 @@
+package org.myblog.users.service;
+
+import jakarta.annotation.PostConstruct;
+import org.myblog.users.appenum.RoleEnum;
+import org.myblog.users.exception.RestIllegalArgumentException;
+import org.myblog.users.model.RoleModel;
+import org.myblog.users.repository.RoleRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+
+@Component
+public class RoleRegistry {
+    @Autowired
+    private RoleRepository roleRepository;
+
+    private volatile Snapshot snapshot = new Snapshot(new EnumMap<>(RoleEnum.class), Map.of());
+
+    @PostConstruct
+    public void reload() {
+        EnumMap<RoleEnum, Integer> ids = new EnumMap<>(RoleEnum.class);
+        Map<Integer, RoleEnum> names = new HashMap<>();
+
+        for (RoleModel i : roleRepository.findAll()) {
+            ids.put(i.getName(), i.getId());
+            names.put(i.getId(), i.getName());
+        }
+
+        snapshot = new Snapshot(ids, Collections.unmodifiableMap(names));
+    }
+
+    public Integer idOf(RoleEnum name) {
+        Integer result = snapshot.ids().get(name);
+
+        if (result == null) {
+            reload();
+            result = snapshot.ids().get(name);
+        }
+
+        if (result == null) {
+            throw new RestIllegalArgumentException("Role was not found");
+        }
+
+        return result;
+    }
+
+    public RoleEnum nameOf(Integer id) {
+        RoleEnum result = snapshot.names().get(id);
+
+        if (result == null) {
+            reload();
+            result = snapshot.names().get(id);
+        }
+
+        return result;
+    }
+
+    public RoleModel reference(RoleEnum name) {
+        RoleModel result = new RoleModel(name);
+        result.setId(idOf(name));
+
+        return result;
+    }
+
+    private record Snapshot(EnumMap<RoleEnum, Integer> ids, Map<Integer, RoleEnum> names) {
+
+    }
+}
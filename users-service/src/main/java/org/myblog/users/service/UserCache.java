@@ -0,0 +1,86 @@
+package org.myblog.users.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import org.myblog.users.dto.response.UserResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.function.Function;
+
+@Component
+public class UserCache {
+    public static final String BY_ID_CACHE_NAME = "users.byId";
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${auth.app.userCache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${auth.app.userCache.maximumSize:10000}")
+    private long maximumSize;
+
+    @Value("${auth.app.userCache.expireAfterWriteMs:60000}")
+    private long expireAfterWriteMs;
+
+    private Cache<Integer, UserResponse> byId;
+
+    @PostConstruct
+    public void init() {
+        byId = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(Duration.ofMillis(expireAfterWriteMs))
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, byId, BY_ID_CACHE_NAME);
+        Gauge.builder("cache.hit.ratio", byId, i -> i.stats().hitRate())
+                .tag("cache", BY_ID_CACHE_NAME)
+                .register(meterRegistry);
+    }
+
+    public UserResponse getById(Integer id, Function<Integer, Optional<UserResponse>> loader) {
+        if (!enabled) {
+            return loader.apply(id).orElse(null);
+        }
+
+        UserResponse result = byId.getIfPresent(id);
+        if (result != null) {
+            return result;
+        }
+
+        result = loader.apply(id).orElse(null);
+        if (result != null) {
+            byId.put(id, result);
+        }
+
+        return result;
+    }
+
+    public void invalidate(Integer id) {
+        if (id == null) {
+            return;
+        }
+
+        byId.invalidate(id);
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    byId.invalidate(id);
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package org.myblog.users.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Locale;
+import java.util.zip.GZIPOutputStream;
+
+@Service
+public class UserExportService {
+    public static final String NDJSON = "application/x-ndjson";
+
+    private static final String EXPORT_SQL = """
+            select u.id, u.username, u.email,
+                   (select string_agg(r.name, ',' order by r.name)
+                      from user_roles ur
+                      join roles r on r.id = ur.role_id
+                     where ur.user_id = u.id) as roles
+              from users u
+             where u.id > ?
+             order by u.id""";
+
+    @Autowired
+    private Logger logger;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${auth.app.export.fetchSize:1000}")
+    private int fetchSize;
+
+    @Value("${auth.app.export.flushEveryRows:1000}")
+    private int flushEveryRows;
+
+    @Value("${auth.app.export.timeoutMs:3600000}")
+    private long timeoutMs;
+
+    private JdbcTemplate exportJdbcTemplate;
+
+    private TransactionTemplate readOnlyTransaction;
+
+    @PostConstruct
+    public void init() {
+        exportJdbcTemplate = new JdbcTemplate(jdbcTemplate.getDataSource());
+        exportJdbcTemplate.setFetchSize(fetchSize);
+
+        readOnlyTransaction = new TransactionTemplate(transactionManager);
+        readOnlyTransaction.setReadOnly(true);
+    }
+
+    @PreAuthorize("hasRole('ADMIN')")
+    public StreamingResponseBody export(Integer afterId, boolean gzip) {
+        int after = afterId != null ? afterId : 0;
+
+        return output -> {
+            OutputStream target = gzip ? new GZIPOutputStream(output, true) : output;
+
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(target)) {
+                generator.setRootValueSeparator(null);
+
+                long count = write(generator, after);
+
+                generator.flush();
+                if (target instanceof GZIPOutputStream gzipOutput) {
+                    gzipOutput.finish();
+                }
+
+                logger.info("Exported {} users after id {}", count, after);
+            }
+        };
+    }
+
+    public long getTimeoutMs() {
+        return timeoutMs;
+    }
+
+    public static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+
+        double gzip = -1;
+        double wildcard = -1;
+        for (String i : acceptEncoding.split(",")) {
+            String[] parts = i.split(";");
+            String coding = parts[0].trim().toLowerCase(Locale.ROOT);
+            double quality = 1;
+
+            for (int j = 1; j < parts.length; j++) {
+                String parameter = parts[j].trim();
+                if (parameter.regionMatches(true, 0, "q=", 0, 2)) {
+                    try {
+                        quality = Double.parseDouble(parameter.substring(2).trim());
+                    } catch (NumberFormatException ex) {
+                        quality = 0;
+                    }
+                }
+            }
+
+            if (coding.equals("gzip") || coding.equals("x-gzip")) {
+                gzip = Math.max(gzip, quality);
+            } else if (coding.equals("*")) {
+                wildcard = Math.max(wildcard, quality);
+            }
+        }
+
+        return (gzip >= 0 ? gzip : wildcard) > 0;
+    }
+
+    private long write(JsonGenerator generator, int afterId) {
+        Long result = readOnlyTransaction.execute(status -> {
+            long[] count = {0};
+
+            exportJdbcTemplate.query(EXPORT_SQL, rs -> {
+                try {
+                    generator.writeStartObject();
+                    generator.writeNumberField("id", rs.getInt("id"));
+                    generator.writeStringField("username", rs.getString("username"));
+                    generator.writeStringField("email", rs.getString("email"));
+
+                    generator.writeArrayFieldStart("roles");
+                    String roles = rs.getString("roles");
+                    if (roles != null) {
+                        for (String i : roles.split(",")) {
+                            generator.writeString(i);
+                        }
+                    }
+                    generator.writeEndArray();
+
+                    generator.writeEndObject();
+                    generator.writeRaw('\n');
+
+                    if (++count[0] % flushEveryRows == 0) {
+                        generator.flush();
+                    }
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+            }, afterId);
+
+            return count[0];
+        });
+
+        return result != null ? result : 0;
+    }
+}
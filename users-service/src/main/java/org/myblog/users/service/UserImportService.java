@@ -0,0 +1,321 @@
+package org.myblog.users.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.apache.logging.log4j.Logger;
+import org.myblog.users.appenum.RoleEnum;
+import org.myblog.users.dto.request.UserImportRequest;
+import org.myblog.users.dto.response.UserImportReport;
+import org.myblog.users.exception.EmailIsAlreadyTakenException;
+import org.myblog.users.exception.RestIllegalArgumentException;
+import org.myblog.users.exception.UsernameIsAlreadyTakenException;
+import org.myblog.users.model.RoleModel;
+import org.myblog.users.model.UserModel;
+import org.myblog.users.repository.UserRepository;
+import org.myblog.users.service.security.BulkheadPasswordEncoder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+@Service
+public class UserImportService {
+    public static final String NDJSON = "application/x-ndjson";
+    public static final String CSV = "text/csv";
+
+    @Autowired
+    private Logger logger;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private UsersService usersService;
+
+    @Autowired
+    private RoleRegistry roleRegistry;
+
+    @Autowired
+    private PasswordEncoder encoder;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private Validator validator;
+
+    @Value("${auth.app.import.chunkSize:500}")
+    private int chunkSize;
+
+    @Value("${auth.app.import.hashingThreads:0}")
+    private int hashingThreads;
+
+    @Value("${auth.app.import.maxReportedFailures:1000}")
+    private int maxReportedFailures;
+
+    private ExecutorService hashingExecutor;
+
+    @PostConstruct
+    public void init() {
+        int threads = hashingThreads > 0 ? hashingThreads : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+
+        hashingExecutor = Executors.newFixedThreadPool(threads, new CustomizableThreadFactory("user-import-"));
+    }
+
+    @PreDestroy
+    public void destroy() {
+        hashingExecutor.shutdown();
+    }
+
+    @PreAuthorize("hasRole('ADMIN')")
+    public UserImportReport importUsers(InputStream input, String contentType) throws IOException {
+        boolean csv = contentType != null && MediaType.parseMediaType(contentType).isCompatibleWith(MediaType.parseMediaType(CSV));
+
+        UserImportReport report = new UserImportReport();
+        List<PendingUser> chunk = new ArrayList<>(chunkSize);
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8))) {
+            List<String> header = null;
+            long lineNumber = 0;
+            String line;
+
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+
+                if (line.isBlank()) {
+                    continue;
+                }
+
+                if (csv && header == null) {
+                    header = splitCsv(line).stream().map(i -> i.trim().toLowerCase(Locale.ROOT)).toList();
+                    continue;
+                }
+
+                report.setTotal(report.getTotal() + 1);
+
+                try {
+                    UserImportRequest record = csv ? parseCsv(header, line) : objectMapper.readValue(line, UserImportRequest.class);
+                    validate(record);
+
+                    chunk.add(new PendingUser(lineNumber, record));
+                } catch (Exception ex) {
+                    fail(report, lineNumber, null, ex.getMessage());
+                }
+
+                if (chunk.size() >= chunkSize) {
+                    importChunk(chunk, report);
+                    chunk.clear();
+                }
+            }
+        }
+
+        if (!chunk.isEmpty()) {
+            importChunk(chunk, report);
+        }
+
+        logger.info("User import finished: {} records, {} imported, {} failed", report.getTotal(), report.getImported(), report.getFailed());
+
+        return report;
+    }
+
+    private void importChunk(List<PendingUser> chunk, UserImportReport report) {
+        Set<String> existingUsernames = new HashSet<>(userRepository.findExistingUsernames(
+                chunk.stream().map(i -> i.record.getUsername()).toList()));
+        Set<String> existingEmails = new HashSet<>(userRepository.findExistingEmails(
+                chunk.stream().map(i -> i.record.getEmail()).toList()));
+
+        PasswordEncoder hashing = encoder instanceof BulkheadPasswordEncoder bulkhead ? bulkhead.getDelegate() : encoder;
+
+        List<PendingUser> accepted = new ArrayList<>(chunk.size());
+        for (PendingUser i : chunk) {
+            if (!existingUsernames.add(i.record.getUsername())) {
+                fail(report, i.lineNumber, i.record.getUsername(), new UsernameIsAlreadyTakenException().getMessage());
+            } else if (!existingEmails.add(i.record.getEmail())) {
+                fail(report, i.lineNumber, i.record.getUsername(), new EmailIsAlreadyTakenException().getMessage());
+            } else {
+                try {
+                    i.roles = roles(i.record.getRoles());
+                    i.hash = hashingExecutor.submit(() -> hashing.encode(i.record.getPassword()));
+                    accepted.add(i);
+                } catch (RuntimeException ex) {
+                    fail(report, i.lineNumber, i.record.getUsername(), ex.getMessage());
+                }
+            }
+        }
+
+        List<PendingUser> hashed = new ArrayList<>(accepted.size());
+        for (PendingUser i : accepted) {
+            try {
+                i.user = new UserModel(i.record.getUsername(), i.record.getEmail(), i.hash.get());
+                i.user.setRoles(i.roles);
+                hashed.add(i);
+            } catch (ExecutionException ex) {
+                fail(report, i.lineNumber, i.record.getUsername(), ex.getCause().getMessage());
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("User import was interrupted", ex);
+            }
+        }
+
+        try {
+            save(hashed);
+            report.setImported(report.getImported() + hashed.size());
+        } catch (DataIntegrityViolationException ex) {
+            logger.warn("User import batch of {} records was rejected, retrying one by one: {}", hashed.size(), ex.getMessage());
+
+            for (PendingUser i : hashed) {
+                i.user.setId(null);
+
+                try {
+                    save(List.of(i));
+                    report.setImported(report.getImported() + 1);
+                } catch (DataIntegrityViolationException single) {
+                    i.user.setId(null);
+                    fail(report, i.lineNumber, i.record.getUsername(), usersService.translateUniqueViolation(single).getMessage());
+                }
+            }
+        }
+    }
+
+    private void save(List<PendingUser> users) {
+        transactionTemplate.executeWithoutResult(status -> {
+            for (PendingUser i : users) {
+                usersService.saveUserAndOutbox(i.user);
+            }
+
+            userRepository.flush();
+        });
+    }
+
+    private Set<RoleModel> roles(Set<String> names) {
+        Set<RoleModel> result = new HashSet<>();
+
+        if (names == null || names.isEmpty()) {
+            result.add(roleRegistry.reference(RoleEnum.ROLE_USER));
+            return result;
+        }
+
+        for (String i : names) {
+            try {
+                result.add(roleRegistry.reference(RoleEnum.valueOf(i.trim())));
+            } catch (IllegalArgumentException ex) {
+                throw new RestIllegalArgumentException("Role was not found");
+            }
+        }
+
+        return result;
+    }
+
+    private void validate(UserImportRequest record) {
+        Set<ConstraintViolation<UserImportRequest>> violations = validator.validate(record);
+
+        if (!violations.isEmpty()) {
+            throw new IllegalArgumentException(violations.stream()
+                    .map(i -> i.getPropertyPath() + ": " + i.getMessage())
+                    .sorted()
+                    .collect(Collectors.joining(", ")));
+        }
+    }
+
+    private void fail(UserImportReport report, long lineNumber, String username, String error) {
+        report.setFailed(report.getFailed() + 1);
+
+        if (report.getFailures().size() < maxReportedFailures) {
+            report.getFailures().add(new UserImportReport.Failure(lineNumber, username, error));
+        }
+    }
+
+    private static UserImportRequest parseCsv(List<String> header, String line) {
+        List<String> values = splitCsv(line);
+        UserImportRequest result = new UserImportRequest();
+
+        for (int i = 0; i < header.size() && i < values.size(); i++) {
+            String value = values.get(i);
+
+            switch (header.get(i)) {
+                case "username" -> result.setUsername(value);
+                case "email" -> result.setEmail(value);
+                case "password" -> result.setPassword(value);
+                case "roles" -> result.setRoles(value.isBlank()
+                        ? null
+                        : new HashSet<>(Arrays.asList(value.split("\\|"))));
+                default -> {
+                }
+            }
+        }
+
+        return result;
+    }
+
+    private static List<String> splitCsv(String line) {
+        List<String> result = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean quoted = false;
+
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    current.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    current.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                result.add(current.toString());
+                current.setLength(0);
+            } else {
+                current.append(c);
+            }
+        }
+        result.add(current.toString());
+
+        return result;
+    }
+
+    private static class PendingUser {
+        private final long lineNumber;
+        private final UserImportRequest record;
+        private Set<RoleModel> roles;
+        private Future<String> hash;
+        private UserModel user;
+
+        private PendingUser(long lineNumber, UserImportRequest record) {
+            this.lineNumber = lineNumber;
+            this.record = record;
+        }
+    }
+}
@@ -2,12 +2,21 @@ package org.myblog.users.service;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
 import org.myblog.users.appenum.RoleEnum;
+import org.myblog.users.appenum.UserSortEnum;
+import org.myblog.users.dto.AppResponse;
 import org.myblog.users.dto.request.LoginRequest;
 import org.myblog.users.dto.request.SignupRequest;
+import org.myblog.users.dto.request.UserPageRequest;
 import org.myblog.users.dto.request.UserPutRequest;
 import org.myblog.users.dto.response.JwtResponse;
+import org.myblog.users.dto.response.PageResponse;
+import org.myblog.users.dto.response.RoleResponse;
+import org.myblog.users.dto.response.UserResponse;
 import org.myblog.users.exception.EmailIsAlreadyTakenException;
+import org.myblog.users.exception.PreconditionFailedException;
 import org.myblog.users.exception.RestIllegalArgumentException;
 import org.myblog.users.exception.UsernameIsAlreadyTakenException;
 import org.myblog.users.kafka.event.UserCreatedEvent;
@@ -17,22 +26,39 @@ import org.myblog.users.model.OutboxModel;
 import org.myblog.users.model.RoleModel;
 import org.myblog.users.model.UserModel;
 import org.myblog.users.repository.OutboxRepository;
-import org.myblog.users.repository.RoleRepository;
+import org.myblog.users.repository.UserKeysetQuery;
 import org.myblog.users.repository.UserRepository;
+import org.myblog.users.service.security.AuthThrottle;
+import org.myblog.users.service.security.PasswordUpgradeService;
 import org.myblog.users.service.security.UserDetailsImpl;
 import org.myblog.users.service.security.jwt.JwtUtils;
+import org.myblog.users.service.security.jwt.RevokedJwtException;
+import org.myblog.users.service.security.jwt.TokenRevocationService;
+import org.myblog.users.service.security.jwt.VerifiedToken;
+import org.myblog.users.service.security.jwt.VerifiedTokenCache;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Sort;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Comparator;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
 import java.util.Set;
 import java.util.stream.Collectors;
 
@@ -45,7 +71,7 @@ public class UsersService {
     private UserRepository userRepository;
 
     @Autowired
-    private RoleRepository roleRepository;
+    private RoleRegistry roleRegistry;
 
     @Autowired
     private OutboxRepository outboxRepository;
@@ -56,20 +82,54 @@ public class UsersService {
     @Autowired
     private JwtUtils jwtUtils;
 
+    @Autowired
+    private TokenRevocationService tokenRevocationService;
+
+    @Autowired
+    private VerifiedTokenCache verifiedTokenCache;
+
+    @Autowired
+    private PasswordUpgradeService passwordUpgradeService;
+
+    @Autowired
+    private AuthThrottle authThrottle;
+
+    @Autowired
+    private AvailabilityService availabilityService;
+
+    @Autowired
+    private UserCache userCache;
+
     @Autowired
     private UserCreatedProducer userCreatedProducer;
 
     @Autowired
     private ObjectMapper objectMapper;
 
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${auth.app.pagination.defaultSize:50}")
+    private int defaultPageSize;
+
     public JwtResponse authenticateUser(LoginRequest loginRequest) {
-        Authentication authentication = authenticationManager.authenticate(
-                new UsernamePasswordAuthenticationToken(loginRequest.getUsername(), loginRequest.getPassword()));
+        authThrottle.checkUsername(loginRequest.getUsername());
+
+        Authentication authentication;
+        try {
+            authentication = authenticationManager.authenticate(
+                    new UsernamePasswordAuthenticationToken(loginRequest.getUsername(), loginRequest.getPassword()));
+        } catch (BadCredentialsException ex) {
+            authThrottle.recordFailedLogin(loginRequest.getUsername());
+            throw ex;
+        }
 
         SecurityContextHolder.getContext().setAuthentication(authentication);
 
         UserDetailsImpl userDetails = (UserDetailsImpl) authentication.getPrincipal();
 
+        passwordUpgradeService.upgradeIfNeeded(userDetails.getId(), loginRequest.getPassword(), userDetails.getPassword());
+
         List<String> roles = userDetails.getAuthorities().stream()
                 .map(item -> item.getAuthority())
                 .collect(Collectors.toList());
@@ -82,50 +142,80 @@ public class UsersService {
                 roles);
     }
 
-    public UserModel registerUser(SignupRequest signUpRequest) {
-        if (userRepository.existsByUsername(signUpRequest.getUsername())) {
-            throw new UsernameIsAlreadyTakenException();
-        }
-
-        if (userRepository.existsByEmail(signUpRequest.getEmail())) {
-            throw new EmailIsAlreadyTakenException();
-        }
-
+    public UserResponse registerUser(SignupRequest signUpRequest) {
         UserModel user = new UserModel(signUpRequest.getUsername(),
                 signUpRequest.getEmail(),
                 encoder.encode(signUpRequest.getPassword()));
 
         Set<RoleModel> roles = new HashSet<>();
-        roles.add(roleRepository.findByName(RoleEnum.ROLE_USER).orElseThrow(() -> new RestIllegalArgumentException("Role is not found.")));
+        roles.add(roleRegistry.reference(RoleEnum.ROLE_USER));
 
         user.setRoles(roles);
 
-        OutboxModel outbox = new OutboxModel();
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                saveUserAndOutbox(user);
+                userRepository.flush();
+            });
+        } catch (DataIntegrityViolationException ex) {
+            throw translateUniqueViolation(ex);
+        }
+
+        return toResponse(user);
+    }
+
+    @PreAuthorize("hasRole('ADMIN')")
+    @Transactional(readOnly = true)
+    public PageResponse<UserResponse> getAll(UserPageRequest request) {
+        int size = request.getSize() != null ? request.getSize() : defaultPageSize;
+
+        UserKeysetQuery query = new UserKeysetQuery(request.getSort(), request.getDirection(), null, null,
+                emptyToNull(request.getUsername()), emptyToNull(request.getEmail()), request.getRole(), size + 1);
+        if (request.getCursor() != null && !request.getCursor().isEmpty()) {
+            query = decodeCursor(request.getCursor(), query);
+        }
 
-        outbox.setTopic(UserCreatedProducer.TOPIC_NAME);
+        List<UserRepository.UserView> items = userRepository.findPage(query);
 
-        saveUserAndOutbox(user, outbox);
+        String nextCursor = null;
+        if (items.size() > size) {
+            items = items.subList(0, size);
+            nextCursor = encodeCursor(query, items.get(size - 1));
+        }
 
-        UserCreatedEvent userCreatedEvent = new UserCreatedEvent(user);
+        Long approximateTotal = query.isFiltered() ? null : userRepository.estimateCount();
 
-        return user;
+        return new PageResponse<>(items.stream().map(this::toResponse).toList(), nextCursor, approximateTotal);
     }
 
     @PreAuthorize("hasRole('ADMIN')")
-    public List<UserModel> getAll() {
-        return userRepository.findAll();
+    public UserResponse get(Integer id) {
+        UserResponse result = userCache.getById(id, i -> userRepository.findViewById(i).map(this::toResponse));
+
+        if (result == null) {
+            throw new RestIllegalArgumentException("User was not found");
+        }
+
+        return result;
     }
 
     @PreAuthorize("hasRole('ADMIN')")
-    public UserModel get(Integer id) {
-        return userRepository.findById(id).orElseThrow(() -> new RestIllegalArgumentException("User was not found"));
+    public int getVersion(Integer id) {
+        return userRepository.findVersionById(id).orElseThrow(() -> new RestIllegalArgumentException("User was not found"));
     }
 
+    @Transactional
     @PreAuthorize("hasRole('ADMIN')")
-    public UserModel put(Integer id,UserPutRequest request) {
-        UserModel model = userRepository.findById(id)
+    public UserResponse put(Integer id, UserPutRequest request, Integer expectedVersion) {
+        UserModel model = userRepository.findWithRolesById(id)
                 .orElseThrow(() -> new RestIllegalArgumentException("User was not found"));
 
+        if (expectedVersion != null && expectedVersion != model.getVersion()) {
+            throw new PreconditionFailedException();
+        }
+
+        userCache.invalidate(model.getId());
+
         if (request.getUsername() != null) {
             model.setUsername(request.getUsername());
         }
@@ -142,31 +232,160 @@ public class UsersService {
             model.getRoles().clear();
 
             for (String i : request.getRoles()) {
-                model.getRoles().add(roleRepository.findByName(RoleEnum.valueOf(i)).orElseThrow(() -> new RestIllegalArgumentException("Role was not found")));
+                model.getRoles().add(roleRegistry.reference(RoleEnum.valueOf(i)));
             }
         }
 
-        userRepository.save(model);
+        if (request.getUsername() != null || request.getPassword() != null
+                || (request.getRoles() != null && !request.getRoles().isEmpty())) {
+            tokenRevocationService.revokeAll(model);
+        }
+
+        userRepository.saveAndFlush(model);
+
+        availabilityService.add(request.getUsername(), request.getEmail());
 
-        return model;
+        return toResponse(model);
     }
 
+    @Transactional
     @PreAuthorize("hasRole('ADMIN')")
     public void delete(Integer id) {
         UserModel model = userRepository.findById(id)
                 .orElseThrow(() -> new RestIllegalArgumentException("User was not found"));
 
         userRepository.delete(model);
+
+        userCache.invalidate(model.getId());
+
+        tokenRevocationService.revokeAll(model.getId(), TokenRevocationService.ALL_TOKENS_REVOKED);
+    }
+
+    @Transactional
+    public void logout(String authorization) {
+        if (authorization == null || !authorization.startsWith("Bearer ")) {
+            throw new RestIllegalArgumentException("Token is missing");
+        }
+
+        Claims claims = jwtUtils.getVerifiedClaims(authorization.substring(7));
+        if (claims == null) {
+            throw new RestIllegalArgumentException("Token is invalid");
+        }
+
+        VerifiedToken token = VerifiedToken.of(claims, null);
+        if (token.tokenId() != null) {
+            tokenRevocationService.revoke(token);
+            return;
+        }
+
+        // Tokens without a jti can only be revoked by generation, which also ends the user's other sessions
+        Integer userId = token.userId() >= 0 ? Integer.valueOf(token.userId()) : legacyUserId(claims);
+        UserModel model = (userId != null ? userRepository.findById(userId) : Optional.<UserModel>empty())
+                .orElseThrow(() -> new RestIllegalArgumentException("Token user was not found"));
+
+        tokenRevocationService.revokeAll(model);
+
+        userRepository.saveAndFlush(model);
+    }
+
+    private Integer legacyUserId(Claims claims) {
+        try {
+            JwtInfo info = jwtUtils.getJwtInfo(claims);
+
+            return info.getUserInfo() != null ? info.getUserInfo().getId() : null;
+        } catch (RuntimeException ex) {
+            return null;
+        }
     }
 
     public JwtInfo decodeToken(String token) {
-        return jwtUtils.getUserDataFromJwtToken(token);
+        VerifiedToken verified = verifiedTokenCache.verify(token);
+
+        if (tokenRevocationService.isRevoked(verified)) {
+            throw new RevokedJwtException();
+        }
+
+        return jwtUtils.getJwtInfo(verified.claims());
     }
 
-    @Transactional
-    private void saveUserAndOutbox(UserModel userModel, OutboxModel outboxModel) {
+    public List<AppResponse<JwtInfo>> introspect(List<String> tokens) {
+        return tokens.stream().map(this::introspect).toList();
+    }
+
+    private AppResponse<JwtInfo> introspect(String token) {
+        try {
+            return new AppResponse<>(decodeToken(token));
+        } catch (JwtException | IllegalArgumentException ex) {
+            return new AppResponse<JwtInfo>().addErrorFluent(ex.getMessage());
+        } catch (RuntimeException ex) {
+            return new AppResponse<JwtInfo>().addErrorFluent("Token claims are invalid");
+        }
+    }
+
+    private UserResponse toResponse(UserModel model) {
+        List<RoleResponse> roles = model.getRoles().stream()
+                .map(i -> new RoleResponse(i.getId(), i.getName()))
+                .sorted(Comparator.comparing(RoleResponse::getId))
+                .toList();
+
+        return new UserResponse(model.getId(), model.getUsername(), model.getEmail(), roles, model.getVersion());
+    }
+
+    private UserResponse toResponse(UserRepository.UserView view) {
+        List<RoleResponse> roles = view.getRoleIds() == null
+                ? List.of()
+                : Arrays.stream(view.getRoleIds().split(","))
+                        .map(Integer::valueOf)
+                        .map(i -> new RoleResponse(i, roleRegistry.nameOf(i)))
+                        .toList();
+
+        return new UserResponse(view.getId(), view.getUsername(), view.getEmail(), roles, view.getVersion());
+    }
+
+    private static String encodeCursor(UserKeysetQuery query, UserRepository.UserView last) {
+        String value = String.join(":", query.sort().name(), query.direction().name(), String.valueOf(last.getId()),
+                query.sort() == UserSortEnum.USERNAME ? last.getUsername() : "");
+
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static UserKeysetQuery decodeCursor(String cursor, UserKeysetQuery query) {
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split(":", 4);
+            UserSortEnum sort = UserSortEnum.valueOf(parts[0]);
+
+            return new UserKeysetQuery(sort, Sort.Direction.valueOf(parts[1]), Integer.valueOf(parts[2]),
+                    sort == UserSortEnum.USERNAME ? parts[3] : null,
+                    query.usernamePrefix(), query.emailPrefix(), query.role(), query.limit());
+        } catch (IllegalArgumentException | ArrayIndexOutOfBoundsException ex) {
+            throw new RestIllegalArgumentException("cursor", "Cursor is invalid");
+        }
+    }
+
+    private static String emptyToNull(String value) {
+        return value == null || value.isEmpty() ? null : value;
+    }
+
+    public RuntimeException translateUniqueViolation(DataIntegrityViolationException ex) {
+        String message = ex.getMostSpecificCause().getMessage();
+        message = message == null ? "" : message.toLowerCase(Locale.ROOT);
+
+        if (message.contains(UserModel.UK_USERNAME) || message.contains("(username)")) {
+            return new UsernameIsAlreadyTakenException();
+        }
+
+        if (message.contains(UserModel.UK_EMAIL) || message.contains("(email)")) {
+            return new EmailIsAlreadyTakenException();
+        }
+
+        return ex;
+    }
+
+    public void saveUserAndOutbox(UserModel userModel) {
         userRepository.save(userModel);
 
+        OutboxModel outboxModel = new OutboxModel();
+        outboxModel.setTopic(UserCreatedProducer.TOPIC_NAME);
         outboxModel.setKey(userModel.getId());
 
         try {
@@ -176,5 +395,8 @@ public class UsersService {
         }
 
         outboxRepository.save(outboxModel);
+        userCreatedProducer.publishAfterCommit(outboxModel, new UserCreatedEvent(userModel));
+
+        availabilityService.add(userModel.getUsername(), userModel.getEmail());
     }
 }
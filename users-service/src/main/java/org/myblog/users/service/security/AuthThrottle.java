@@ -0,0 +1,112 @@
+package org.myblog.users.service.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.myblog.users.exception.TooManyRequestsException;
+import org.myblog.users.util.TokenBucket;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+@Component
+public class AuthThrottle {
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${auth.app.throttling.enabled:true}")
+    private boolean enabled;
+
+    @Value("${auth.app.throttling.ipCapacity:20}")
+    private int ipCapacity;
+
+    @Value("${auth.app.throttling.ipRefillMs:1000}")
+    private long ipRefillMs;
+
+    @Value("${auth.app.throttling.usernameCapacity:5}")
+    private int usernameCapacity;
+
+    @Value("${auth.app.throttling.usernameRefillMs:12000}")
+    private long usernameRefillMs;
+
+    @Value("${auth.app.throttling.maximumKeys:100000}")
+    private long maximumKeys;
+
+    @Value("${auth.app.throttling.idleExpireMs:600000}")
+    private long idleExpireMs;
+
+    private Cache<String, TokenBucket> ipBuckets;
+
+    private Cache<String, TokenBucket> usernameBuckets;
+
+    private Counter ipRejected;
+
+    private Counter usernameRejected;
+
+    @PostConstruct
+    public void init() {
+        ipBuckets = newBuckets();
+        usernameBuckets = newBuckets();
+
+        ipRejected = Counter.builder("auth.throttled").tag("key", "ip").register(meterRegistry);
+        usernameRejected = Counter.builder("auth.throttled").tag("key", "username").register(meterRegistry);
+    }
+
+    public void acquireIp(String ip) {
+        if (enabled && ip != null) {
+            acquire(ipBuckets, ip, ipCapacity, ipRefillMs, ipRejected);
+        }
+    }
+
+    public void checkUsername(String username) {
+        if (!enabled || username == null) {
+            return;
+        }
+
+        long now = System.nanoTime();
+        TokenBucket bucket = usernameBuckets.getIfPresent(username.toLowerCase(Locale.ROOT));
+
+        if (bucket != null && bucket.nanosUntilAvailable(now) > 0) {
+            usernameRejected.increment();
+            throw new TooManyRequestsException(retryAfterSeconds(bucket, now));
+        }
+    }
+
+    public void recordFailedLogin(String username) {
+        if (enabled && username != null) {
+            long now = System.nanoTime();
+            bucket(usernameBuckets, username.toLowerCase(Locale.ROOT), usernameCapacity, usernameRefillMs, now).tryAcquire(now);
+        }
+    }
+
+    private Cache<String, TokenBucket> newBuckets() {
+        return Caffeine.newBuilder()
+                .maximumSize(maximumKeys)
+                .expireAfterAccess(Duration.ofMillis(idleExpireMs))
+                .build();
+    }
+
+    private static void acquire(Cache<String, TokenBucket> buckets, String key, int capacity, long refillMs, Counter rejected) {
+        long now = System.nanoTime();
+        TokenBucket bucket = bucket(buckets, key, capacity, refillMs, now);
+
+        if (!bucket.tryAcquire(now)) {
+            rejected.increment();
+            throw new TooManyRequestsException(retryAfterSeconds(bucket, now));
+        }
+    }
+
+    private static TokenBucket bucket(Cache<String, TokenBucket> buckets, String key, int capacity, long refillMs, long now) {
+        return buckets.get(key, i -> new TokenBucket(capacity, TimeUnit.MILLISECONDS.toNanos(refillMs), now));
+    }
+
+    private static long retryAfterSeconds(TokenBucket bucket, long now) {
+        return Math.max(1, TimeUnit.NANOSECONDS.toSeconds(bucket.nanosUntilAvailable(now)) + 1);
+    }
+}
@@ -0,0 +1,61 @@
+package org.myblog.users.service.security;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.apache.logging.log4j.Logger;
+import org.myblog.users.dto.AppResponse;
+import org.myblog.users.exception.TooManyRequestsException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.security.web.servlet.util.matcher.PathPatternRequestMatcher;
+import org.springframework.security.web.util.matcher.OrRequestMatcher;
+import org.springframework.security.web.util.matcher.RequestMatcher;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+public class AuthThrottlingFilter extends OncePerRequestFilter {
+    private static final RequestMatcher THROTTLED_PATHS = new OrRequestMatcher(
+            PathPatternRequestMatcher.withDefaults().matcher(HttpMethod.POST, "/users/auth/login"),
+            PathPatternRequestMatcher.withDefaults().matcher(HttpMethod.POST, "/users/auth/register"),
+            PathPatternRequestMatcher.withDefaults().matcher(HttpMethod.GET, "/users/auth/availability"),
+            PathPatternRequestMatcher.withDefaults().matcher(HttpMethod.POST, "/users/auth/introspect"));
+
+    @Autowired
+    private AuthThrottle authThrottle;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private Logger logger;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !THROTTLED_PATHS.matches(request);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        try {
+            authThrottle.acquireIp(request.getRemoteAddr());
+        } catch (TooManyRequestsException ex) {
+            logger.warn("Throttled {} from {}", request.getRequestURI(), request.getRemoteAddr());
+
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+            response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfterSeconds()));
+            objectMapper.writeValue(response.getOutputStream(), new AppResponse<>().addErrorFluent(ex.getMessage()));
+            return;
+        }
+
+        filterChain.doFilter(request, response);
+    }
+}
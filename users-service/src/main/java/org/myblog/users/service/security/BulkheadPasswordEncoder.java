@@ -0,0 +1,94 @@
+package org.myblog.users.service.security;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import org.myblog.users.exception.ServiceOverloadedException;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.util.List;
+import java.util.concurrent.*;
+
+public class BulkheadPasswordEncoder implements PasswordEncoder, DisposableBean {
+    public static final String METRIC_PREFIX = "password.hashing";
+
+    private final PasswordEncoder delegate;
+
+    private final ThreadPoolExecutor executor;
+
+    private final Timer waitTimer;
+
+    private final Counter rejectedCounter;
+
+    public BulkheadPasswordEncoder(PasswordEncoder delegate, int threads, int queueCapacity, MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                new CustomizableThreadFactory("password-hashing-"),
+                new ThreadPoolExecutor.AbortPolicy());
+
+        this.waitTimer = Timer.builder(METRIC_PREFIX + ".wait")
+                .description("Time password operations spend queued before a hashing thread picks them up")
+                .register(meterRegistry);
+        this.rejectedCounter = Counter.builder(METRIC_PREFIX + ".rejected")
+                .description("Password operations rejected because the hashing queue was full")
+                .register(meterRegistry);
+
+        ExecutorServiceMetrics.monitor(meterRegistry, executor, METRIC_PREFIX, List.of());
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return execute(() -> delegate.encode(rawPassword));
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return execute(() -> delegate.matches(rawPassword, encodedPassword));
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        return delegate.upgradeEncoding(encodedPassword);
+    }
+
+    public PasswordEncoder getDelegate() {
+        return delegate;
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdown();
+    }
+
+    private <T> T execute(Callable<T> task) {
+        long submittedAt = System.nanoTime();
+
+        Future<T> future;
+        try {
+            future = executor.submit(() -> {
+                waitTimer.record(System.nanoTime() - submittedAt, TimeUnit.NANOSECONDS);
+                return task.call();
+            });
+        } catch (RejectedExecutionException ex) {
+            rejectedCounter.increment();
+            throw new ServiceOverloadedException("Too many password operations in progress, try again later");
+        }
+
+        try {
+            return future.get();
+        } catch (InterruptedException ex) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for password hashing", ex);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(ex.getCause());
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package org.myblog.users.service.security;
+
+import org.myblog.users.appenum.RoleEnum;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.util.HashMap;
+import java.util.Map;
+
+public final class GrantedAuthorities {
+    private static final Map<String, GrantedAuthority> AUTHORITIES = new HashMap<>();
+
+    static {
+        for (RoleEnum role : RoleEnum.values()) {
+            AUTHORITIES.put(role.name(), new SimpleGrantedAuthority(role.name()));
+        }
+    }
+
+    private GrantedAuthorities() {
+
+    }
+
+    public static GrantedAuthority of(RoleEnum role) {
+        return AUTHORITIES.get(role.name());
+    }
+
+    public static GrantedAuthority of(String name) {
+        GrantedAuthority result = AUTHORITIES.get(name);
+
+        return result != null ? result : new SimpleGrantedAuthority(name);
+    }
+}
@@ -0,0 +1,37 @@
+package org.myblog.users.service.security;
+
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.util.Arrays;
+
+public final class PasswordEncoderCalibrator {
+    private static final int SAMPLES = 3;
+
+    private PasswordEncoderCalibrator() {
+
+    }
+
+    public static int calibrateBCryptStrength(long targetMillis, int minStrength, int maxStrength) {
+        BCryptPasswordEncoder encoder = new BCryptPasswordEncoder(minStrength);
+        encoder.encode("calibration");
+
+        long[] samples = new long[SAMPLES];
+        for (int i = 0; i < SAMPLES; i++) {
+            long start = System.nanoTime();
+            encoder.encode("calibration");
+            samples[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(samples);
+
+        long targetNanos = targetMillis * 1_000_000L;
+        long estimatedNanos = samples[SAMPLES / 2];
+
+        int result = minStrength;
+        while (result < maxStrength && estimatedNanos * 2 <= targetNanos) {
+            result++;
+            estimatedNanos *= 2;
+        }
+
+        return result;
+    }
+}
@@ -0,0 +1,69 @@
+package org.myblog.users.service.security;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.apache.logging.log4j.Logger;
+import org.myblog.users.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Component
+public class PasswordHashAuditJob {
+    @Autowired
+    private Logger logger;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PasswordEncoder encoder;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${auth.app.passwordHashing.auditChunkSize:1000}")
+    private int chunkSize;
+
+    private final AtomicLong staleHashes = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        Gauge.builder(BulkheadPasswordEncoder.METRIC_PREFIX + ".stale", staleHashes, AtomicLong::get)
+                .description("Accounts whose password hash is weaker than the current work factor, as of the last audit")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(cron = "${auth.app.passwordHashing.auditCron:-}")
+    public long audit() {
+        long scanned = 0;
+        long stale = 0;
+        int afterId = 0;
+
+        List<UserRepository.PasswordView> chunk;
+        do {
+            chunk = userRepository.findPasswordsAfter(afterId, Limit.of(chunkSize));
+
+            stale += chunk.stream()
+                    .filter(i -> i.getPassword() != null && encoder.upgradeEncoding(i.getPassword()))
+                    .count();
+            scanned += chunk.size();
+
+            if (!chunk.isEmpty()) {
+                afterId = chunk.get(chunk.size() - 1).getId();
+            }
+        } while (chunk.size() == chunkSize);
+
+        staleHashes.set(stale);
+        logger.info("Password hash audit: {} accounts scanned, {} hashes will be upgraded on next login", scanned, stale);
+
+        return stale;
+    }
+}
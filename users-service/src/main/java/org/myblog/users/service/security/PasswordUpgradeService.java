@@ -0,0 +1,62 @@
+package org.myblog.users.service.security;
+
+import jakarta.annotation.PreDestroy;
+import org.apache.logging.log4j.Logger;
+import org.myblog.users.repository.UserRepository;
+import org.myblog.users.service.UserCache;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+@Service
+public class PasswordUpgradeService {
+    private static final int QUEUE_CAPACITY = 1000;
+
+    @Autowired
+    private Logger logger;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PasswordEncoder encoder;
+
+    @Autowired
+    private UserCache userCache;
+
+    private final ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(QUEUE_CAPACITY),
+            new CustomizableThreadFactory("password-upgrade-"),
+            new ThreadPoolExecutor.DiscardPolicy());
+
+    public void upgradeIfNeeded(Integer userId, String rawPassword, String encodedPassword) {
+        if (userId == null || encodedPassword == null || !encoder.upgradeEncoding(encodedPassword)) {
+            return;
+        }
+
+        executor.execute(() -> upgrade(userId, rawPassword, encodedPassword));
+    }
+
+    @PreDestroy
+    public void destroy() {
+        executor.shutdown();
+    }
+
+    private void upgrade(Integer userId, String rawPassword, String encodedPassword) {
+        try {
+            int updated = userRepository.updatePasswordIfUnchanged(userId, encodedPassword, encoder.encode(rawPassword));
+
+            if (updated > 0) {
+                userCache.invalidate(userId);
+                logger.info("Password hash of user {} was upgraded", userId);
+            }
+        } catch (RuntimeException ex) {
+            logger.warn("Cannot upgrade password hash of user {}: {}", userId, ex.getMessage());
+        }
+    }
+}
@@ -5,20 +5,34 @@ import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.apache.logging.log4j.Logger;
+import org.myblog.users.appenum.PrincipalSourceEnum;
+import org.myblog.users.config.SecurityConfig;
 import org.myblog.users.service.security.UserDetailsServiceImpl;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
+import org.springframework.security.web.servlet.util.matcher.PathPatternRequestMatcher;
+import org.springframework.security.web.util.matcher.OrRequestMatcher;
+import org.springframework.security.web.util.matcher.RequestMatcher;
 import org.springframework.util.StringUtils;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.util.Arrays;
 
 public class AuthTokenFilter extends OncePerRequestFilter {
+    private static final RequestMatcher PUBLIC_PATHS = new OrRequestMatcher(Arrays.stream(SecurityConfig.PUBLIC_PATHS)
+            .map(i -> (RequestMatcher) PathPatternRequestMatcher.withDefaults().matcher(i))
+            .toList());
+
+    @Autowired
+    private VerifiedTokenCache verifiedTokenCache;
+
     @Autowired
-    private JwtUtils jwtUtils;
+    private TokenRevocationService tokenRevocationService;
 
     @Autowired
     private UserDetailsServiceImpl userDetailsService;
@@ -26,15 +40,29 @@ public class AuthTokenFilter extends OncePerRequestFilter {
     @Autowired
     private Logger logger;
 
+    @Value("${auth.app.principalSource:TOKEN}")
+    private PrincipalSourceEnum principalSource;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return PUBLIC_PATHS.matches(request);
+    }
+
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
             throws ServletException, IOException {
         try {
             String jwt = parseJwt(request);
-            if (jwt != null && jwtUtils.validateJwtToken(jwt)) {
-                String username = jwtUtils.getUserNameFromJwtToken(jwt);
+            VerifiedToken token = jwt != null ? verifiedTokenCache.get(jwt) : null;
+            if (token != null && !tokenRevocationService.isRevoked(token)) {
+                UserDetails userDetails = principalSource == PrincipalSourceEnum.TOKEN
+                        ? token.userDetails()
+                        : null;
+
+                if (userDetails == null) {
+                    userDetails = userDetailsService.loadUserByUsername(token.claims().getSubject());
+                }
 
-                UserDetails userDetails = userDetailsService.loadUserByUsername(username);
                 UsernamePasswordAuthenticationToken authentication =
                         new UsernamePasswordAuthenticationToken(
                                 userDetails,
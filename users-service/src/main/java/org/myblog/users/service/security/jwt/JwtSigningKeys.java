@@ -0,0 +1,178 @@
+package org.myblog.users.service.security.jwt;
+
+import io.jsonwebtoken.*;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
+import org.apache.logging.log4j.Logger;
+import org.myblog.users.config.JwtSigningProperties;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.math.BigInteger;
+import java.security.*;
+import java.security.interfaces.RSAPrivateCrtKey;
+import java.security.interfaces.RSAPublicKey;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.security.spec.RSAPublicKeySpec;
+import java.security.spec.X509EncodedKeySpec;
+import java.time.Instant;
+import java.util.*;
+
+@Component
+public class JwtSigningKeys extends SigningKeyResolverAdapter {
+    @Autowired
+    private Logger logger;
+
+    @Autowired
+    private JwtSigningProperties properties;
+
+    @Value("${auth.app.jwtSecret}")
+    private String jwtSecret;
+
+    private Key hmacKey;
+
+    private SignatureAlgorithm algorithm;
+
+    private String activeKeyId;
+
+    private Key signingKey;
+
+    private Map<String, PublicKey> publicKeys;
+
+    private Map<String, Object> jwks;
+
+    @PostConstruct
+    public void init() {
+        hmacKey = Keys.hmacShaKeyFor(Decoders.BASE64.decode(jwtSecret));
+        algorithm = properties.getAlgorithm();
+        publicKeys = new LinkedHashMap<>();
+
+        if (algorithm.isHmac()) {
+            signingKey = hmacKey;
+        } else if (algorithm.isRsa()) {
+            initRsaKeys();
+        } else {
+            throw new IllegalStateException(String.format("Unsupported JWT signing algorithm: %s", algorithm));
+        }
+
+        if (properties.getLegacyHmacUntil() != null && !algorithm.isHmac()) {
+            logger.warn("Accepting legacy HMAC-signed tokens until {}", properties.getLegacyHmacUntil());
+        }
+
+        List<Map<String, Object>> keys = new ArrayList<>();
+        publicKeys.forEach((id, key) -> keys.add(toJwk(id, (RSAPublicKey) key)));
+        jwks = Map.of("keys", List.copyOf(keys));
+    }
+
+    public JwtBuilder sign(JwtBuilder builder) {
+        if (activeKeyId != null) {
+            builder.setHeaderParam(JwsHeader.KEY_ID, activeKeyId);
+        }
+
+        return builder.signWith(signingKey, algorithm);
+    }
+
+    @Override
+    public Key resolveSigningKey(JwsHeader header, Claims claims) {
+        SignatureAlgorithm headerAlgorithm = SignatureAlgorithm.forName(header.getAlgorithm());
+
+        if (headerAlgorithm.isHmac()) {
+            if (!algorithm.isHmac() && !acceptsLegacyHmac()) {
+                throw new UnsupportedJwtException(String.format("%s tokens are not accepted in %s mode", headerAlgorithm, algorithm));
+            }
+
+            return hmacKey;
+        }
+
+        PublicKey result = header.getKeyId() != null ? publicKeys.get(header.getKeyId()) : null;
+        if (result == null || !headerAlgorithm.isRsa()) {
+            throw new UnsupportedJwtException(String.format("Unknown signing key: %s/%s", headerAlgorithm, header.getKeyId()));
+        }
+
+        return result;
+    }
+
+    private boolean acceptsLegacyHmac() {
+        Instant legacyHmacUntil = properties.getLegacyHmacUntil();
+
+        return legacyHmacUntil != null && Instant.now().isBefore(legacyHmacUntil);
+    }
+
+    public Map<String, Object> getJwks() {
+        return jwks;
+    }
+
+    public long getJwksMaxAgeSeconds() {
+        return properties.getJwksMaxAgeSeconds();
+    }
+
+    private void initRsaKeys() {
+        try {
+            if (properties.getKeys().isEmpty()) {
+                throw new IllegalStateException(String.format("No JWT signing keys are configured for %s", algorithm));
+            }
+
+            KeyFactory keyFactory = KeyFactory.getInstance("RSA");
+
+            for (JwtSigningProperties.KeyProperties i : properties.getKeys()) {
+                PublicKey publicKey = null;
+
+                if (i.getPrivateKey() != null) {
+                    PrivateKey privateKey = keyFactory.generatePrivate(new PKCS8EncodedKeySpec(decodePem(i.getPrivateKey())));
+
+                    if (i.getId().equals(properties.getActiveKeyId())) {
+                        signingKey = privateKey;
+                        activeKeyId = i.getId();
+                    }
+
+                    if (privateKey instanceof RSAPrivateCrtKey crtKey) {
+                        publicKey = keyFactory.generatePublic(new RSAPublicKeySpec(crtKey.getModulus(), crtKey.getPublicExponent()));
+                    }
+                }
+
+                if (i.getPublicKey() != null) {
+                    publicKey = keyFactory.generatePublic(new X509EncodedKeySpec(decodePem(i.getPublicKey())));
+                }
+
+                if (publicKey == null) {
+                    throw new IllegalStateException(String.format("JWT key %s has no public part", i.getId()));
+                }
+
+                publicKeys.put(i.getId(), publicKey);
+            }
+
+            if (signingKey == null) {
+                throw new IllegalStateException(String.format("Active JWT key %s has no private key", properties.getActiveKeyId()));
+            }
+        } catch (GeneralSecurityException ex) {
+            throw new IllegalStateException(String.format("Cannot load JWT signing keys: %s", ex.getMessage()), ex);
+        }
+    }
+
+    private Map<String, Object> toJwk(String id, RSAPublicKey key) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("kty", "RSA");
+        result.put("use", "sig");
+        result.put("alg", algorithm.getValue());
+        result.put("kid", id);
+        result.put("n", base64Url(key.getModulus()));
+        result.put("e", base64Url(key.getPublicExponent()));
+
+        return Collections.unmodifiableMap(result);
+    }
+
+    private static String base64Url(BigInteger value) {
+        byte[] bytes = value.toByteArray();
+        if (bytes.length > 1 && bytes[0] == 0) {
+            bytes = Arrays.copyOfRange(bytes, 1, bytes.length);
+        }
+
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    private static byte[] decodePem(String value) {
+        return Base64.getMimeDecoder().decode(value.replaceAll("-----[A-Z ]+-----", "").replaceAll("\\s", ""));
+    }
+}
@@ -2,99 +2,155 @@ package org.myblog.users.service.security.jwt;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import io.jsonwebtoken.*;
-import io.jsonwebtoken.io.Decoders;
-import io.jsonwebtoken.security.Keys;
+import io.jsonwebtoken.io.Serializer;
+import io.jsonwebtoken.jackson.io.JacksonDeserializer;
+import io.jsonwebtoken.jackson.io.JacksonSerializer;
+import jakarta.annotation.PostConstruct;
 import org.apache.logging.log4j.Logger;
 import org.myblog.users.model.JwtInfo;
 import org.myblog.users.model.JwtUserInfo;
+import org.myblog.users.service.security.GrantedAuthorities;
 import org.myblog.users.service.security.UserDetailsImpl;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
 import org.springframework.stereotype.Component;
 
-import java.security.Key;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Base64;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
 
 @Component
 public class JwtUtils {
+    public static final String CLAIM_USER_ID = "uid";
+    public static final String CLAIM_ROLES = "roles";
+    public static final String CLAIM_TOKEN_GENERATION = "gen";
+    private static final String LEGACY_CLAIM_USER = "user";
+
     @Autowired
     private Logger logger;
 
     @Autowired
     private ObjectMapper objectMapper;
 
-    @Value("${auth.app.jwtSecret}")
-    private String jwtSecret;
+    @Autowired
+    private JwtSigningKeys signingKeys;
 
     @Value("${auth.app.jwtExpirationMs}")
     private int jwtExpirationMs;
 
-    public String generateJwtToken(Authentication authentication, List<String> roles) {
+    private JwtParser parser;
+
+    private Serializer<Map<String, ?>> serializer;
 
+    @PostConstruct
+    public void init() {
+        serializer = new JacksonSerializer<>(objectMapper);
+        parser = Jwts.parserBuilder()
+                .deserializeJsonWith(new JacksonDeserializer<>(objectMapper))
+                .setSigningKeyResolver(signingKeys)
+                .build();
+    }
+
+    public String generateJwtToken(Authentication authentication, List<String> roles) {
         UserDetailsImpl userPrincipal = (UserDetailsImpl) authentication.getPrincipal();
-        String userPrincipalString = "";
 
-        try {
-            ObjectMapper objectMapper = new ObjectMapper();
-            userPrincipalString = objectMapper.writeValueAsString(new JwtUserInfo(userPrincipal));
-        } catch (Exception e) {
-            return "";
-        }
+        long now = System.currentTimeMillis();
 
-        Claims claims = Jwts.claims().setSubject(userPrincipal.getUsername());
-        claims.put("user", userPrincipalString);
+        JwtBuilder builder = Jwts.builder()
+                .serializeToJsonWith(serializer)
+                .setId(newTokenId())
+                .setSubject(userPrincipal.getUsername())
+                .claim(CLAIM_USER_ID, userPrincipal.getId())
+                .claim(CLAIM_ROLES, roles)
+                .setIssuedAt(new Date(now))
+                .setExpiration(new Date(now + jwtExpirationMs));
 
-        String jwt = Jwts.builder()
-                .setClaims(claims)
-                .setIssuedAt(new Date())
-                .setExpiration(new Date((new Date()).getTime() + jwtExpirationMs))
-                .signWith(key(), SignatureAlgorithm.HS256)
-                .compact();
+        if (userPrincipal.getTokenGeneration() > 0) {
+            builder.claim(CLAIM_TOKEN_GENERATION, userPrincipal.getTokenGeneration());
+        }
 
-        return jwt;
+        return signingKeys.sign(builder).compact();
     }
 
-    private Key key() {
-        return Keys.hmacShaKeyFor(Decoders.BASE64.decode(jwtSecret));
+    public JwtInfo getUserDataFromJwtToken(String token) {
+        return getJwtInfo(parseClaims(token));
     }
 
-    public String getUserNameFromJwtToken(String token) {
-        return Jwts.parserBuilder().setSigningKey(key()).build()
-                .parseClaimsJws(token).getBody().getSubject();
-    }
+    public JwtInfo getJwtInfo(Claims claims) {
+        JwtUserInfo userInfo = new JwtUserInfo();
+        userInfo.setId(claims.get(CLAIM_USER_ID, Integer.class));
 
-    public JwtInfo getUserDataFromJwtToken(String token) {
-        Claims claims = Jwts.parserBuilder().setSigningKey(key()).build()
-                .parseClaimsJws(token).getBody();
+        if (userInfo.getId() == null && claims.containsKey(LEGACY_CLAIM_USER)) {
+            try {
+                userInfo = objectMapper.readValue(claims.get(LEGACY_CLAIM_USER, String.class), JwtUserInfo.class);
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        }
 
         JwtInfo jwtInfo = new JwtInfo();
-        try {
-            jwtInfo.setUserInfo(objectMapper.readValue(claims.get("user", String.class), JwtUserInfo.class));
-        } catch (Exception e) {
-            throw new RuntimeException(e);
-        }
+        jwtInfo.setUserInfo(userInfo);
 
         jwtInfo.setExpiration(claims.getExpiration());
 
         return jwtInfo;
     }
 
-    public boolean validateJwtToken(String authToken) {
+    public UserDetailsImpl getUserDetailsFromClaims(Claims claims) {
+        Integer id = claims.get(CLAIM_USER_ID, Integer.class);
+        List<?> roles = claims.get(CLAIM_ROLES, List.class);
+
+        if (id == null || roles == null) {
+            return null;
+        }
+
+        List<GrantedAuthority> authorities = new ArrayList<>(roles.size());
+        for (Object i : roles) {
+            authorities.add(GrantedAuthorities.of(String.valueOf(i)));
+        }
+
+        return new UserDetailsImpl(id, claims.getSubject(), null, null, authorities);
+    }
+
+    public Claims getVerifiedClaims(String authToken) {
         try {
-            Jwts.parserBuilder().setSigningKey(key()).build().parse(authToken);
-            return true;
+            return parseClaims(authToken);
         } catch (MalformedJwtException e) {
             logger.warn("Invalid JWT token: {}", e.getMessage());
         } catch (ExpiredJwtException e) {
             logger.warn("JWT token is expired: {}", e.getMessage());
         } catch (UnsupportedJwtException e) {
             logger.warn("JWT token is unsupported: {}", e.getMessage());
+        } catch (JwtException e) {
+            logger.warn("JWT token is rejected: {}", e.getMessage());
         } catch (IllegalArgumentException e) {
             logger.warn("JWT claims string is empty: {}", e.getMessage());
         }
 
-        return false;
+        return null;
+    }
+
+    public long getJwtExpirationMs() {
+        return jwtExpirationMs;
+    }
+
+    public Claims parseClaims(String token) {
+        return parser.parseClaimsJws(token).getBody();
+    }
+
+    private static String newTokenId() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        byte[] bytes = ByteBuffer.allocate(12)
+                .putLong(random.nextLong())
+                .putInt(random.nextInt())
+                .array();
+
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
     }
 }
@@ -0,0 +1,9 @@
+package org.myblog.users.service.security.jwt;
+
+import io.jsonwebtoken.JwtException;
+
+public class RevokedJwtException extends JwtException {
+    public RevokedJwtException() {
+        super("JWT token is revoked");
+    }
+}
@@ -0,0 +1,169 @@
+package org.myblog.users.service.security.jwt;
+
+import jakarta.annotation.PostConstruct;
+import org.apache.logging.log4j.Logger;
+import org.myblog.users.model.TokenRevocationModel;
+import org.myblog.users.model.UserModel;
+import org.myblog.users.repository.TokenRevocationRepository;
+import org.myblog.users.repository.UserRepository;
+import org.myblog.users.util.BloomFilter;
+import org.myblog.users.util.IntIntHashMap;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Service
+public class TokenRevocationService {
+    public static final int ALL_TOKENS_REVOKED = Integer.MAX_VALUE;
+
+    private static final int REFRESH_BATCH_SIZE = 1000;
+
+    @Autowired
+    private Logger logger;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private TokenRevocationRepository tokenRevocationRepository;
+
+    @Autowired
+    private JwtUtils jwtUtils;
+
+    @Value("${auth.app.revocation.expectedRevokedTokens:100000}")
+    private long expectedRevokedTokens;
+
+    @Value("${auth.app.revocation.falsePositiveProbability:0.01}")
+    private double falsePositiveProbability;
+
+    @Value("${auth.app.revocation.refreshLookbackIds:1000}")
+    private int refreshLookbackIds;
+
+    private final IntIntHashMap tokenGenerations = new IntIntHashMap();
+
+    private final Map<String, Long> revokedTokens = new ConcurrentHashMap<>();
+
+    private volatile BloomFilter revokedTokenFilter;
+
+    private volatile int lastRevocationId;
+
+    @PostConstruct
+    public void init() {
+        revokedTokenFilter = BloomFilter.create(expectedRevokedTokens, falsePositiveProbability);
+
+        for (UserRepository.TokenGenerationView i : userRepository.findTokenGenerations()) {
+            tokenGenerations.putMax(i.getId(), i.getTokenGeneration());
+        }
+
+        refresh();
+
+        logger.info("Token revocation state loaded: {} users, {} revoked tokens", tokenGenerations.size(), revokedTokens.size());
+    }
+
+    public boolean isRevoked(VerifiedToken token) {
+        return isRevoked(token.userId(), token.tokenGeneration(), token.tokenId());
+    }
+
+    public boolean isRevoked(int userId, int tokenGeneration, String tokenId) {
+        if (tokenGeneration < tokenGenerations.get(userId, 0)) {
+            return true;
+        }
+
+        return tokenId != null
+                && revokedTokenFilter.mightContain(tokenId)
+                && revokedTokens.containsKey(tokenId);
+    }
+
+    public void revokeAll(UserModel user) {
+        user.setTokenGeneration(user.getTokenGeneration() + 1);
+
+        revokeAll(user.getId(), user.getTokenGeneration());
+    }
+
+    public void revokeAll(Integer userId, int tokenGeneration) {
+        TokenRevocationModel revocation = new TokenRevocationModel();
+        revocation.setUserId(userId);
+        revocation.setTokenGeneration(tokenGeneration);
+        revocation.setExpiresAt(Instant.now().plusMillis(jwtUtils.getJwtExpirationMs()));
+
+        tokenRevocationRepository.save(revocation);
+
+        applyAfterCommit(revocation);
+    }
+
+    public void revoke(VerifiedToken token) {
+        if (token.tokenId() == null) {
+            throw new IllegalArgumentException("Token has no id to revoke");
+        }
+
+        TokenRevocationModel revocation = new TokenRevocationModel();
+        revocation.setUserId(token.userId());
+        revocation.setTokenId(token.tokenId());
+        revocation.setExpiresAt(Instant.ofEpochMilli(token.expiresAtMillis()));
+
+        tokenRevocationRepository.save(revocation);
+
+        applyAfterCommit(revocation);
+    }
+
+    @Scheduled(fixedDelayString = "${auth.app.revocation.refreshMs:5000}", initialDelayString = "${auth.app.revocation.refreshMs:5000}")
+    public synchronized void refresh() {
+        int cursor = lastRevocationId - refreshLookbackIds;
+        List<TokenRevocationModel> revocations;
+        do {
+            revocations = tokenRevocationRepository.findByIdGreaterThanOrderByIdAsc(cursor, Limit.of(REFRESH_BATCH_SIZE));
+
+            for (TokenRevocationModel i : revocations) {
+                apply(i);
+                cursor = i.getId();
+                lastRevocationId = Math.max(lastRevocationId, i.getId());
+            }
+        } while (revocations.size() == REFRESH_BATCH_SIZE);
+    }
+
+    @Scheduled(fixedDelayString = "${auth.app.revocation.purgeMs:3600000}", initialDelayString = "${auth.app.revocation.purgeMs:3600000}")
+    public synchronized void purge() {
+        long now = System.currentTimeMillis();
+
+        int deleted = tokenRevocationRepository.deleteExpired(Instant.ofEpochMilli(now));
+        revokedTokens.values().removeIf(i -> i < now);
+
+        BloomFilter filter = BloomFilter.create(expectedRevokedTokens, falsePositiveProbability);
+        revokedTokens.keySet().forEach(filter::put);
+        revokedTokenFilter = filter;
+
+        logger.info("Token revocations purged: {} rows deleted, {} revoked tokens left", deleted, revokedTokens.size());
+    }
+
+    private void applyAfterCommit(TokenRevocationModel revocation) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            apply(revocation);
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                apply(revocation);
+            }
+        });
+    }
+
+    private synchronized void apply(TokenRevocationModel revocation) {
+        if (revocation.getTokenId() != null) {
+            revokedTokens.put(revocation.getTokenId(), revocation.getExpiresAt().toEpochMilli());
+            revokedTokenFilter.put(revocation.getTokenId());
+        } else if (revocation.getUserId() != null && revocation.getTokenGeneration() != null) {
+            tokenGenerations.putMax(revocation.getUserId(), revocation.getTokenGeneration());
+        }
+    }
+}
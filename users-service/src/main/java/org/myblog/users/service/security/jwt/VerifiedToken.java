@@ -0,0 +1,21 @@
+package org.myblog.users.service.security.jwt;
+
+import io.jsonwebtoken.Claims;
+import org.myblog.users.service.security.UserDetailsImpl;
+
+public record VerifiedToken(Claims claims, UserDetailsImpl userDetails, int userId, int tokenGeneration, String tokenId) {
+    public static VerifiedToken of(Claims claims, UserDetailsImpl userDetails) {
+        Integer userId = claims.get(JwtUtils.CLAIM_USER_ID, Integer.class);
+        Integer tokenGeneration = claims.get(JwtUtils.CLAIM_TOKEN_GENERATION, Integer.class);
+
+        return new VerifiedToken(claims,
+                userDetails,
+                userId != null ? userId : -1,
+                tokenGeneration != null ? tokenGeneration : 0,
+                claims.getId());
+    }
+
+    public long expiresAtMillis() {
+        return claims.getExpiration() != null ? claims.getExpiration().getTime() : Long.MAX_VALUE;
+    }
+}
@@ -0,0 +1,124 @@
+package org.myblog.users.service.security.jwt;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.jsonwebtoken.Claims;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.TimeUnit;
+
+@Component
+public class VerifiedTokenCache {
+    public static final String CACHE_NAME = "jwt.verified";
+
+    private static final ThreadLocal<MessageDigest> SHA_256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    });
+
+    @Autowired
+    private JwtUtils jwtUtils;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${auth.app.tokenCache.maximumSize:100000}")
+    private long maximumSize;
+
+    private Cache<TokenDigest, VerifiedToken> cache;
+
+    @PostConstruct
+    public void init() {
+        cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfter(new TokenExpiry())
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+    }
+
+    public VerifiedToken get(String token) {
+        TokenDigest digest = TokenDigest.of(token);
+
+        VerifiedToken result = cache.getIfPresent(digest);
+        if (result != null) {
+            return result;
+        }
+
+        Claims claims = jwtUtils.getVerifiedClaims(token);
+        if (claims == null) {
+            return null;
+        }
+
+        return put(digest, claims);
+    }
+
+    public VerifiedToken verify(String token) {
+        TokenDigest digest = TokenDigest.of(token);
+
+        VerifiedToken result = cache.getIfPresent(digest);
+        if (result != null) {
+            return result;
+        }
+
+        return put(digest, jwtUtils.parseClaims(token));
+    }
+
+    private VerifiedToken put(TokenDigest digest, Claims claims) {
+        VerifiedToken result = VerifiedToken.of(claims, jwtUtils.getUserDetailsFromClaims(claims));
+        cache.put(digest, result);
+
+        return result;
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    private record TokenDigest(long high, long low) {
+        static TokenDigest of(String token) {
+            byte[] hash = SHA_256.get().digest(token.getBytes(StandardCharsets.UTF_8));
+            ByteBuffer buffer = ByteBuffer.wrap(hash);
+
+            return new TokenDigest(buffer.getLong(), buffer.getLong());
+        }
+    }
+
+    private static class TokenExpiry implements Expiry<TokenDigest, VerifiedToken> {
+        @Override
+        public long expireAfterCreate(TokenDigest key, VerifiedToken value, long currentTime) {
+            long remainingMs = value.expiresAtMillis() - System.currentTimeMillis();
+
+            return remainingMs > 0 ? TimeUnit.MILLISECONDS.toNanos(remainingMs) : 0;
+        }
+
+        @Override
+        public long expireAfterUpdate(TokenDigest key, VerifiedToken value, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, value, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(TokenDigest key, VerifiedToken value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package org.myblog.users.util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+public class BloomFilter {
+    private final AtomicLongArray bits;
+
+    private final long bitSize;
+
+    private final int hashFunctions;
+
+    private BloomFilter(long bitSize, int hashFunctions) {
+        this.bits = new AtomicLongArray((int) ((bitSize + 63) >>> 6));
+        this.bitSize = (long) bits.length() << 6;
+        this.hashFunctions = hashFunctions;
+    }
+
+    public static BloomFilter create(long expectedInsertions, double falsePositiveProbability) {
+        long insertions = Math.max(1, expectedInsertions);
+        double fpp = Math.min(Math.max(falsePositiveProbability, Double.MIN_VALUE), 0.5);
+
+        long bitSize = Math.max(64, (long) (-insertions * Math.log(fpp) / (Math.log(2) * Math.log(2))));
+        int hashFunctions = Math.max(1, (int) Math.round((double) bitSize / insertions * Math.log(2)));
+
+        return new BloomFilter(bitSize, hashFunctions);
+    }
+
+    public void put(CharSequence value) {
+        long hash1 = hash(value, 0x9E3779B97F4A7C15L);
+        long hash2 = hash(value, 0xC2B2AE3D27D4EB4FL);
+
+        for (int i = 0; i < hashFunctions; i++) {
+            long index = Long.remainderUnsigned(hash1 + i * hash2, bitSize);
+            int word = (int) (index >>> 6);
+            long mask = 1L << index;
+
+            long current = bits.get(word);
+            while ((current & mask) == 0 && !bits.compareAndSet(word, current, current | mask)) {
+                current = bits.get(word);
+            }
+        }
+    }
+
+    public boolean mightContain(CharSequence value) {
+        long hash1 = hash(value, 0x9E3779B97F4A7C15L);
+        long hash2 = hash(value, 0xC2B2AE3D27D4EB4FL);
+
+        for (int i = 0; i < hashFunctions; i++) {
+            long index = Long.remainderUnsigned(hash1 + i * hash2, bitSize);
+
+            if ((bits.get((int) (index >>> 6)) & (1L << index)) == 0) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    public long bitSize() {
+        return bitSize;
+    }
+
+    public int hashFunctions() {
+        return hashFunctions;
+    }
+
+    public double expectedFalsePositiveProbability() {
+        long setBits = 0;
+        for (int i = 0; i < bits.length(); i++) {
+            setBits += Long.bitCount(bits.get(i));
+        }
+
+        return Math.pow((double) setBits / bitSize, hashFunctions);
+    }
+
+    private static long hash(CharSequence value, long seed) {
+        long result = seed ^ value.length();
+
+        for (int i = 0; i < value.length(); i++) {
+            result ^= value.charAt(i);
+            result *= 0xFF51AFD7ED558CCDL;
+            result ^= result >>> 32;
+        }
+
+        result ^= result >>> 33;
+        result *= 0xC4CEB9FE1A85EC53L;
+        result ^= result >>> 33;
+
+        return result | 1;
+    }
+}
@@ -0,0 +1,42 @@
+package org.myblog.users.util;
+
+import org.myblog.users.dto.response.PageResponse;
+import org.myblog.users.dto.response.UserResponse;
+
+public final class ETags {
+    private ETags() {
+    }
+
+    public static String of(int version) {
+        return "\"" + version + "\"";
+    }
+
+    public static String of(PageResponse<UserResponse> page) {
+        long hash = 1125899906842597L;
+        for (UserResponse i : page.getItems()) {
+            hash = 31 * hash + i.getId();
+            hash = 31 * hash + i.getVersion();
+        }
+        hash = 31 * hash + (page.getNextCursor() != null ? page.getNextCursor().hashCode() : 0);
+        hash = 31 * hash + (page.getApproximateTotal() != null ? page.getApproximateTotal().hashCode() : 0);
+
+        return "\"" + page.getItems().size() + "-" + Long.toHexString(hash) + "\"";
+    }
+
+    public static Integer parseVersion(String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.trim().equals("*")) {
+            return null;
+        }
+
+        String value = ifMatch.trim();
+        if (value.length() < 3 || value.charAt(0) != '"' || value.charAt(value.length() - 1) != '"') {
+            return -1;
+        }
+
+        try {
+            return Integer.valueOf(value.substring(1, value.length() - 1));
+        } catch (NumberFormatException ex) {
+            return -1;
+        }
+    }
+}
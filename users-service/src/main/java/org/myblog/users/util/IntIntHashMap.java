@@ -0,0 +1,122 @@
+package org.myblog.users.util;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.StampedLock;
+
+public class IntIntHashMap {
+    private static final int EMPTY = Integer.MIN_VALUE;
+
+    private final StampedLock lock = new StampedLock();
+
+    private volatile Table table = new Table(16);
+
+    private int size;
+
+    public int get(int key, int defaultValue) {
+        long stamp = lock.tryOptimisticRead();
+        int result = table.get(key, defaultValue);
+
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                result = table.get(key, defaultValue);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        return result;
+    }
+
+    public void putMax(int key, int value) {
+        if (key == EMPTY) {
+            throw new IllegalArgumentException("Key is reserved");
+        }
+
+        long stamp = lock.writeLock();
+        try {
+            if ((size + 1) * 2 > table.keys.length) {
+                table = table.resize(table.keys.length * 2);
+            }
+
+            if (table.putMax(key, value)) {
+                size++;
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public int size() {
+        long stamp = lock.readLock();
+        try {
+            return size;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    private static final class Table {
+        private final int[] keys;
+
+        private final int[] values;
+
+        private Table(int capacity) {
+            keys = new int[capacity];
+            values = new int[capacity];
+            Arrays.fill(keys, EMPTY);
+        }
+
+        private int get(int key, int defaultValue) {
+            int mask = keys.length - 1;
+            int index = mix(key) & mask;
+
+            for (int i = 0; i < keys.length; i++) {
+                int current = keys[index];
+                if (current == key) {
+                    return values[index];
+                }
+                if (current == EMPTY) {
+                    return defaultValue;
+                }
+                index = (index + 1) & mask;
+            }
+
+            return defaultValue;
+        }
+
+        private boolean putMax(int key, int value) {
+            int mask = keys.length - 1;
+            int index = mix(key) & mask;
+
+            while (keys[index] != EMPTY) {
+                if (keys[index] == key) {
+                    values[index] = Math.max(values[index], value);
+                    return false;
+                }
+                index = (index + 1) & mask;
+            }
+
+            values[index] = value;
+            keys[index] = key;
+            return true;
+        }
+
+        private Table resize(int capacity) {
+            Table result = new Table(capacity);
+
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i] != EMPTY) {
+                    result.putMax(keys[i], values[i]);
+                }
+            }
+
+            return result;
+        }
+
+        private static int mix(int key) {
+            int result = key * 0x9E3779B9;
+            return result ^ (result >>> 16);
+        }
+    }
+}
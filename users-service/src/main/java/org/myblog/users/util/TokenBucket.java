@@ -0,0 +1,40 @@
+package org.myblog.users.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+public class TokenBucket {
+    private final long refillNanos;
+
+    private final long burstNanos;
+
+    private final AtomicLong theoreticalArrival;
+
+    public TokenBucket(int capacity, long refillNanos, long nowNanos) {
+        if (capacity <= 0 || refillNanos <= 0) {
+            throw new IllegalArgumentException("capacity and refillNanos must be positive");
+        }
+
+        this.refillNanos = refillNanos;
+        this.burstNanos = refillNanos * (capacity - 1);
+        this.theoreticalArrival = new AtomicLong(nowNanos);
+    }
+
+    public boolean tryAcquire(long nowNanos) {
+        while (true) {
+            long current = theoreticalArrival.get();
+            long arrival = current - nowNanos > 0 ? current : nowNanos;
+
+            if (arrival - nowNanos > burstNanos) {
+                return false;
+            }
+
+            if (theoreticalArrival.compareAndSet(current, arrival + refillNanos)) {
+                return true;
+            }
+        }
+    }
+
+    public long nanosUntilAvailable(long nowNanos) {
+        return Math.max(0, theoreticalArrival.get() - burstNanos - nowNanos);
+    }
+}
@@ -0,0 +1,51 @@
+package org.myblog.users.benchmark;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.myblog.users.config.JwtSigningProperties;
+import org.myblog.users.service.security.UserDetailsImpl;
+import org.myblog.users.service.security.jwt.JwtUtils;
+import org.myblog.users.unit.service.JwtUtilsUnitTests;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.util.List;
+
+@Tag("benchmark")
+public class JwtIssuanceBenchmark {
+    private static final int WARMUP = 20_000;
+    private static final int ITERATIONS = 200_000;
+
+    @Test
+    public void issueAndDecode() {
+        JwtUtils jwtUtils = JwtUtilsUnitTests.createJwtUtils(new JwtSigningProperties());
+
+        UserDetailsImpl principal = new UserDetailsImpl(3, "maxsmg", "maxsmg@myblog.org", "encoded",
+                List.of(new SimpleGrantedAuthority("ROLE_USER")));
+        Authentication authentication = new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities());
+        List<String> roles = List.of("ROLE_USER");
+
+        for (int i = 0; i < WARMUP; i++) {
+            jwtUtils.getUserDataFromJwtToken(jwtUtils.generateJwtToken(authentication, roles));
+        }
+
+        long bytes = 0;
+        long start = System.nanoTime();
+        String token = null;
+        for (int i = 0; i < ITERATIONS; i++) {
+            token = jwtUtils.generateJwtToken(authentication, roles);
+            bytes += token.length();
+        }
+        long issueNanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            jwtUtils.getUserDataFromJwtToken(token);
+        }
+        long decodeNanos = System.nanoTime() - start;
+
+        System.out.printf("issue:  %.0f tokens/sec, %d bytes/token%n", ITERATIONS / (issueNanos / 1e9), bytes / ITERATIONS);
+        System.out.printf("decode: %.0f tokens/sec%n", ITERATIONS / (decodeNanos / 1e9));
+    }
+}
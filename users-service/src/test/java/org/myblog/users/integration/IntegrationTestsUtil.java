@@ -10,6 +10,7 @@ import org.springframework.stereotype.Service;
 import java.io.IOException;
 
 import static org.hamcrest.Matchers.equalTo;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 @Component
 public class IntegrationTestsUtil {
@@ -27,4 +28,13 @@ public class IntegrationTestsUtil {
 
         return result;
     }
+
+    public void assertMaxStatements(long expected, Runnable action) {
+        RequestStatementInspector.reset();
+
+        action.run();
+
+        long actual = RequestStatementInspector.getRequestStatements();
+        assertTrue(actual <= expected, String.format("Expected at most %d SQL statements, but %d were executed", expected, actual));
+    }
 }
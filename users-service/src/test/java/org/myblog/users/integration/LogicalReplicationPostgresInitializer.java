@@ -0,0 +1,30 @@
+package org.myblog.users.integration;
+
+import org.springframework.boot.test.util.TestPropertyValues;
+import org.springframework.context.ApplicationContextInitializer;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+public class LogicalReplicationPostgresInitializer implements ApplicationContextInitializer<ConfigurableApplicationContext> {
+
+    @Override
+    public void initialize(ConfigurableApplicationContext context) {
+        PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16.1")
+                .withDatabaseName("myblog-test")
+                .withUsername("postgres")
+                .withPassword("postgres")
+                .withCommand("postgres", "-c", "wal_level=logical");
+        postgres.start();
+
+        TestPropertyValues.of(
+                "spring.datasource.url=" + postgres.getJdbcUrl(),
+                "spring.datasource.username=" + postgres.getUsername(),
+                "spring.datasource.password=" + postgres.getPassword(),
+                "spring.jpa.hibernate.ddl-auto=create-drop",
+                "auth.app.outbox.relayMode=WAL"
+        ).applyTo(context.getEnvironment());
+
+        context.getBeanFactory()
+                .registerSingleton("postgresTestContainer", postgres);
+    }
+}
@@ -0,0 +1,28 @@
+package org.myblog.users.integration;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+public class RequestStatementInspector implements StatementInspector {
+    private static final String REQUEST_THREAD_PREFIX = "http-nio-";
+
+    private static final AtomicLong requestStatements = new AtomicLong();
+
+    public static void reset() {
+        requestStatements.set(0);
+    }
+
+    public static long getRequestStatements() {
+        return requestStatements.get();
+    }
+
+    @Override
+    public String inspect(String sql) {
+        if (Thread.currentThread().getName().startsWith(REQUEST_THREAD_PREFIX)) {
+            requestStatements.incrementAndGet();
+        }
+
+        return sql;
+    }
+}
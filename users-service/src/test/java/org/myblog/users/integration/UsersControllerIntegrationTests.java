@@ -4,6 +4,7 @@ import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import io.restassured.RestAssured;
 import io.restassured.builder.RequestSpecBuilder;
+import io.restassured.config.DecoderConfig;
 import io.restassured.http.ContentType;
 import org.hamcrest.Matcher;
 import org.junit.jupiter.api.BeforeEach;
@@ -33,9 +34,11 @@ import org.testcontainers.junit.jupiter.Container;
 import org.testcontainers.junit.jupiter.Testcontainers;
 
 import java.io.IOException;
+import java.util.List;
 import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import static io.restassured.RestAssured.*;
@@ -58,6 +61,7 @@ public class UsersControllerIntegrationTests {
     final String URI_USERS_AUTH_REGISTER = "/users/auth/register";
     final String URI_USERS_USER = "/users/user";
     final String URI_USERS_USER_ID = "/users/user/{id}";
+    final String URI_USERS_USER_EXPORT = "/users/user/export";
 
     @Value("${TEST_PORT}")
     private Integer APP_PORT;
@@ -341,33 +345,37 @@ public class UsersControllerIntegrationTests {
 
     @Test
     public void get_getAll_admin_ok() {
-        given()
-                .when()
-                .header("Authorization", String.format("Bearer %s", getAdminToken()))
-                .get(URI_USERS_USER)
-                .then()
-                .statusCode(200)
-                .body("status", equalTo("OK"))
-
-                .body("data[0].id", equalTo(1))
-                .body("data[0].username", equalTo("admin"))
-                .body("data[0].email", equalTo("admin@myblog.org"))
-                .body("data[0].roles[0].id", equalTo(3))
-                .body("data[0].roles[0].name", equalTo("ROLE_ADMIN"))
-
-                .body("data[1].id", equalTo(2))
-                .body("data[1].username", equalTo("moderator"))
-                .body("data[1].email", equalTo("moderator@myblog.org"))
-                .body("data[1].roles[0].id", equalTo(2))
-                .body("data[1].roles[0].name", equalTo("ROLE_MODERATOR"))
-
-                .body("data[2].id", equalTo(3))
-                .body("data[2].username", equalTo("maxsmg"))
-                .body("data[2].email", equalTo("maxsmg@myblog.org"))
-                .body("data[2].roles[0].id", equalTo(1))
-                .body("data[2].roles[0].name", equalTo("ROLE_USER"))
-
-                .body("errors", nullValue());
+        String token = getAdminToken();
+
+        integrationTestsUtil.assertMaxStatements(2, () -> given()
+                    .when()
+                    .header("Authorization", String.format("Bearer %s", token))
+                    .get(URI_USERS_USER)
+                    .then()
+                    .statusCode(200)
+                    .body("status", equalTo("OK"))
+
+                    .body("data.items[0].id", equalTo(1))
+                    .body("data.items[0].username", equalTo("admin"))
+                    .body("data.items[0].email", equalTo("admin@myblog.org"))
+                    .body("data.items[0].roles[0].id", equalTo(3))
+                    .body("data.items[0].roles[0].name", equalTo("ROLE_ADMIN"))
+                    .body("data.items[0]", not(hasKey("password")))
+
+                    .body("data.items[1].id", equalTo(2))
+                    .body("data.items[1].username", equalTo("moderator"))
+                    .body("data.items[1].email", equalTo("moderator@myblog.org"))
+                    .body("data.items[1].roles[0].id", equalTo(2))
+                    .body("data.items[1].roles[0].name", equalTo("ROLE_MODERATOR"))
+
+                    .body("data.items[2].id", equalTo(3))
+                    .body("data.items[2].username", equalTo("maxsmg"))
+                    .body("data.items[2].email", equalTo("maxsmg@myblog.org"))
+                    .body("data.items[2].roles[0].id", equalTo(1))
+                    .body("data.items[2].roles[0].name", equalTo("ROLE_USER"))
+
+                    .body("data.nextCursor", nullValue())
+                    .body("errors", nullValue()));
     }
 
     @Test
@@ -443,23 +451,26 @@ public class UsersControllerIntegrationTests {
 
     @Test
     public void get_get_admin_ok() {
-        given()
-                .header("Authorization", String.format("Bearer %s", getAdminToken()))
-                .pathParam("id", 1)
-                .when()
-                .get(URI_USERS_USER_ID)
-                .then()
-                .statusCode(200)
-
-                .body("status", equalTo("OK"))
-
-                .body("data.id", equalTo(1))
-                .body("data.username", equalTo("admin"))
-                .body("data.email", equalTo("admin@myblog.org"))
-                .body("data.roles[0].id", equalTo(3))
-                .body("data.roles[0].name", equalTo("ROLE_ADMIN"))
-
-                .body("errors", nullValue());
+        String token = getAdminToken();
+
+        integrationTestsUtil.assertMaxStatements(1, () -> given()
+                    .header("Authorization", String.format("Bearer %s", token))
+                    .pathParam("id", 1)
+                    .when()
+                    .get(URI_USERS_USER_ID)
+                    .then()
+                    .statusCode(200)
+
+                    .body("status", equalTo("OK"))
+
+                    .body("data.id", equalTo(1))
+                    .body("data.username", equalTo("admin"))
+                    .body("data.email", equalTo("admin@myblog.org"))
+                    .body("data.roles[0].id", equalTo(3))
+                    .body("data.roles[0].name", equalTo("ROLE_ADMIN"))
+                    .body("data", not(hasKey("password")))
+
+                    .body("errors", nullValue()));
     }
 
     @Test
@@ -613,6 +624,85 @@ public class UsersControllerIntegrationTests {
 
     }
 
+    @Test
+    public void get_get_admin_notModified() {
+        String token = getAdminToken();
+
+        String etag = given()
+                .header("Authorization", String.format("Bearer %s", token))
+                .pathParam("id", 3)
+                .when()
+                .get(URI_USERS_USER_ID)
+                .then()
+                .statusCode(200)
+                .header("ETag", notNullValue())
+                .extract()
+                .header("ETag");
+
+        integrationTestsUtil.assertMaxStatements(1, () -> given()
+                    .header("Authorization", String.format("Bearer %s", token))
+                    .header("If-None-Match", etag)
+                    .pathParam("id", 3)
+                    .when()
+                    .get(URI_USERS_USER_ID)
+                    .then()
+                    .statusCode(304)
+                    .body(emptyOrNullString()));
+    }
+
+    @Test
+    public void put_put_admin_preconditionFailed() {
+        String token = getAdminToken();
+
+        String etag = given()
+                .header("Authorization", String.format("Bearer %s", token))
+                .pathParam("id", 3)
+                .when()
+                .get(URI_USERS_USER_ID)
+                .then()
+                .statusCode(200)
+                .extract()
+                .header("ETag");
+
+        UserPutRequest userPutRequest = new UserPutRequest();
+        userPutRequest.setUsername("newUsername");
+
+        String newEtag = given()
+                .header("Authorization", String.format("Bearer %s", token))
+                .header("If-Match", etag)
+                .pathParam("id", 3)
+                .body(userPutRequest)
+                .when()
+                .put(URI_USERS_USER_ID)
+                .then()
+                .statusCode(200)
+                .header("ETag", not(equalTo(etag)))
+                .extract()
+                .header("ETag");
+
+        userPutRequest.setUsername("otherUsername");
+
+        given()
+                .header("Authorization", String.format("Bearer %s", token))
+                .header("If-Match", etag)
+                .pathParam("id", 3)
+                .body(userPutRequest)
+                .when()
+                .put(URI_USERS_USER_ID)
+                .then()
+                .statusCode(412)
+                .body("status", equalTo("ERROR"));
+
+        given()
+                .header("Authorization", String.format("Bearer %s", token))
+                .header("If-None-Match", newEtag)
+                .pathParam("id", 3)
+                .when()
+                .get(URI_USERS_USER_ID)
+                .then()
+                .statusCode(304);
+    }
+
     @Test
     public void put_put_admin_ok_toShortRequestProperties() {
         final String expectedBody = """
@@ -794,4 +884,55 @@ public class UsersControllerIntegrationTests {
                 .statusCode(400)
                 .body(integrationTestsUtil.equalToJSON(expectedBody));
     }
+
+    @Test
+    public void get_export_admin_ok() throws IOException {
+        ObjectMapper objectMapper = new ObjectMapper();
+
+        String body = given()
+                .config(RestAssured.config().decoderConfig(DecoderConfig.decoderConfig().noContentDecoders()))
+                .header("Authorization", String.format("Bearer %s", getAdminToken()))
+                .header("Accept-Encoding", "gzip;q=0, identity")
+                .queryParam("after", 1)
+                .when()
+                .get(URI_USERS_USER_EXPORT)
+                .then()
+                .statusCode(200)
+                .header("Content-Encoding", nullValue())
+                .extract()
+                .asString();
+
+        List<String> lines = body.lines().toList();
+        JsonNode moderator = objectMapper.readTree(lines.get(0));
+        JsonNode user = objectMapper.readTree(lines.get(1));
+
+        assertEquals(2, lines.size());
+        assertEquals(2, moderator.get("id").asInt());
+        assertEquals("moderator", moderator.get("username").asText());
+        assertEquals("ROLE_MODERATOR", moderator.get("roles").get(0).asText());
+        assertEquals(3, user.get("id").asInt());
+        assertEquals("maxsmg@myblog.org", user.get("email").asText());
+        assertEquals("ROLE_USER", user.get("roles").get(0).asText());
+        assertFalse(user.has("password"));
+    }
+
+    @Test
+    public void get_export_admin_gzip() throws IOException {
+        String body = given()
+                .header("Authorization", String.format("Bearer %s", getAdminToken()))
+                .when()
+                .get(URI_USERS_USER_EXPORT)
+                .then()
+                .statusCode(200)
+                .header("Content-Encoding", equalTo("gzip"))
+                .extract()
+                .asString();
+
+        List<String> lines = body.lines().toList();
+        JsonNode admin = new ObjectMapper().readTree(lines.get(0));
+
+        assertEquals(3, lines.size());
+        assertEquals("admin", admin.get("username").asText());
+        assertEquals("ROLE_ADMIN", admin.get("roles").get(0).asText());
+    }
 }
\ No newline at end of file
@@ -0,0 +1,164 @@
+package org.myblog.users.integration;
+
+import io.restassured.RestAssured;
+import io.restassured.builder.RequestSpecBuilder;
+import io.restassured.http.ContentType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.myblog.users.dto.request.SignupRequest;
+import org.myblog.users.kafka.event.UserCreatedEvent;
+import org.myblog.users.kafka.producer.UserCreatedProducer;
+import org.myblog.users.repository.OutboxRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.concurrent.CompletableFuture;
+
+import static io.restassured.RestAssured.given;
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.DEFINED_PORT)
+@ActiveProfiles("test")
+@Testcontainers
+@ContextConfiguration(initializers = LogicalReplicationPostgresInitializer.class)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+public class WalOutboxRelayIntegrationTests {
+    final String URI_USERS_AUTH_REGISTER = "/users/auth/register";
+
+    @Value("${TEST_PORT}")
+    private Integer APP_PORT;
+
+    @MockitoBean
+    private KafkaTemplate<Integer, UserCreatedEvent> kafkaTemplate;
+
+    @Autowired
+    private OutboxRepository outboxRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    public void restAssuredInit() {
+        RestAssured.port = APP_PORT;
+        RestAssured.requestSpecification = new RequestSpecBuilder()
+                .setContentType(ContentType.JSON)
+                .build();
+    }
+
+    @Test
+    public void post_registerUser_relayedFromWal() throws InterruptedException {
+        when(kafkaTemplate.send(anyString(), any(), any()))
+                .thenAnswer(i -> CompletableFuture.completedFuture(mock(SendResult.class)));
+
+        String before = awaitConfirmedLsn();
+
+        Integer id = register("walUser");
+        String written = jdbcTemplate.queryForObject("select pg_current_wal_lsn()::text", String.class);
+
+        verify(kafkaTemplate, timeout(15000)).send(eq(UserCreatedProducer.TOPIC_NAME), eq(id),
+                argThat(i -> "walUser".equals(i.getUsername())));
+
+        awaitEmptyOutbox();
+
+        assertEquals(0, outboxRepository.count());
+        assertTrue(awaitConfirmedPast(written), "confirmed_flush_lsn did not reach the registration commit");
+        assertTrue(isAfter(currentConfirmedLsn(), before), "confirmed_flush_lsn did not advance");
+        verify(kafkaTemplate, times(1)).send(anyString(), any(), any());
+    }
+
+    @Test
+    public void post_registerUser_failedSendRetriedByPoller() throws InterruptedException {
+        when(kafkaTemplate.send(anyString(), any(), any()))
+                .thenAnswer(i -> CompletableFuture.failedFuture(new IllegalStateException("Broker unavailable")))
+                .thenAnswer(i -> CompletableFuture.completedFuture(mock(SendResult.class)));
+
+        String before = awaitConfirmedLsn();
+
+        Integer id = register("walRetryUser");
+        String written = jdbcTemplate.queryForObject("select pg_current_wal_lsn()::text", String.class);
+
+        assertTrue(awaitConfirmedPast(written), "confirmed_flush_lsn did not move past the failed send");
+        assertTrue(isAfter(currentConfirmedLsn(), before), "confirmed_flush_lsn did not advance");
+
+        verify(kafkaTemplate, timeout(15000).times(2)).send(eq(UserCreatedProducer.TOPIC_NAME), eq(id),
+                argThat(i -> "walRetryUser".equals(i.getUsername())));
+
+        awaitEmptyOutbox();
+
+        assertEquals(0, outboxRepository.count());
+    }
+
+    private Integer register(String username) {
+        SignupRequest signupRequest = new SignupRequest();
+        signupRequest.setUsername(username);
+        signupRequest.setEmail(username + "@myblog.org");
+        signupRequest.setPassword("walPassword");
+
+        return given()
+                .body(signupRequest)
+                .when()
+                .post(URI_USERS_AUTH_REGISTER)
+                .then()
+                .statusCode(200)
+                .body("data.username", equalTo(username))
+                .extract()
+                .path("data.id");
+    }
+
+    private void awaitEmptyOutbox() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 15000;
+        while (outboxRepository.count() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(100);
+        }
+    }
+
+    private String awaitConfirmedLsn() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 15000;
+        String lsn = currentConfirmedLsn();
+        while (lsn == null && System.currentTimeMillis() < deadline) {
+            Thread.sleep(100);
+            lsn = currentConfirmedLsn();
+        }
+
+        assertNotNull(lsn, "Replication slot was not created");
+        return lsn;
+    }
+
+    private boolean awaitConfirmedPast(String lsn) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 15000;
+        while (System.currentTimeMillis() < deadline) {
+            String confirmed = currentConfirmedLsn();
+            if (confirmed != null && !isAfter(lsn, confirmed)) {
+                return true;
+            }
+            Thread.sleep(100);
+        }
+
+        return false;
+    }
+
+    private String currentConfirmedLsn() {
+        return jdbcTemplate.query(
+                "select confirmed_flush_lsn::text from pg_replication_slots where slot_name = 'users_outbox'",
+                rs -> rs.next() ? rs.getString(1) : null);
+    }
+
+    private boolean isAfter(String lsn, String other) {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "select ?::pg_lsn > ?::pg_lsn", Boolean.class, lsn, other));
+    }
+}
@@ -0,0 +1,103 @@
+package org.myblog.users.unit.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.logging.log4j.LogManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.myblog.users.dto.response.AvailabilityResponse;
+import org.myblog.users.repository.UserRepository;
+import org.myblog.users.service.AvailabilityService;
+import org.springframework.data.domain.Limit;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class AvailabilityServiceUnitTests {
+    private UserRepository userRepository;
+
+    private MeterRegistry meterRegistry;
+
+    private AvailabilityService availabilityService;
+
+    @BeforeEach
+    public void init() {
+        userRepository = mock(UserRepository.class);
+        meterRegistry = new SimpleMeterRegistry();
+
+        UserRepository.IdentityView existing = mock(UserRepository.IdentityView.class);
+        when(existing.getId()).thenReturn(1);
+        when(existing.getUsername()).thenReturn("maxsmg");
+        when(existing.getEmail()).thenReturn("maxsmg@myblog.org");
+        when(userRepository.findIdentitiesAfter(eq(0), any(Limit.class))).thenReturn(List.of(existing));
+
+        availabilityService = new AvailabilityService();
+        ReflectionTestUtils.setField(availabilityService, "logger", LogManager.getLogger(AvailabilityServiceUnitTests.class));
+        ReflectionTestUtils.setField(availabilityService, "userRepository", userRepository);
+        ReflectionTestUtils.setField(availabilityService, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(availabilityService, "expectedUsers", 1000L);
+        ReflectionTestUtils.setField(availabilityService, "falsePositiveProbability", 0.01);
+        availabilityService.init();
+    }
+
+    @Test
+    public void check_SkipsDatabaseForFilterNegatives() {
+        // Act
+
+        AvailabilityResponse actual = availabilityService.check("newUser", "newUser@mail.com");
+
+        // Assert
+
+        assertEquals(new AvailabilityResponse(true, true), actual);
+        verify(userRepository, never()).existsByUsername(anyString());
+        verify(userRepository, never()).existsByEmail(anyString());
+        assertEquals(2.0, meterRegistry.get("availability.checks").tag("result", "filter_negative").counter().count());
+    }
+
+    @Test
+    public void check_ConfirmsPositivesInDatabase() {
+        // Arrange
+
+        when(userRepository.existsByUsername("maxsmg")).thenReturn(true);
+        when(userRepository.existsByUsername("renamed")).thenReturn(false);
+        availabilityService.add("renamed", null);
+
+        // Act
+
+        AvailabilityResponse taken = availabilityService.check("maxsmg", null);
+        AvailabilityResponse stale = availabilityService.check("renamed", null);
+
+        // Assert
+
+        assertEquals(new AvailabilityResponse(false, null), taken);
+        assertEquals(new AvailabilityResponse(true, null), stale);
+        verify(userRepository, never()).existsByEmail(anyString());
+        assertEquals(1.0, meterRegistry.get("availability.checks").tag("result", "false_positive").counter().count());
+        assertTrue(meterRegistry.get("availability.filter.bits").tag("field", "username").gauge().value() > 0);
+    }
+
+    @Test
+    public void rebuild_KeepsNamesAddedDuringRebuild() {
+        // Arrange
+
+        when(userRepository.findIdentitiesAfter(eq(0), any(Limit.class))).thenAnswer(i -> {
+            availabilityService.add("concurrent", null);
+            return List.of();
+        });
+        when(userRepository.existsByUsername("concurrent")).thenReturn(true);
+
+        // Act
+
+        availabilityService.rebuild();
+        AvailabilityResponse actual = availabilityService.check("concurrent", null);
+
+        // Assert
+
+        assertEquals(new AvailabilityResponse(false, null), actual);
+        verify(userRepository).existsByUsername("concurrent");
+    }
+}
@@ -0,0 +1,64 @@
+package org.myblog.users.unit.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.myblog.users.exception.ServiceOverloadedException;
+import org.myblog.users.service.security.BulkheadPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BulkheadPasswordEncoderUnitTests {
+    @Test
+    public void encode_RejectsWhenQueueIsFull() throws Exception {
+        // Arrange
+
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        PasswordEncoder blocking = new PasswordEncoder() {
+            @Override
+            public String encode(CharSequence rawPassword) {
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+                return "encoded";
+            }
+
+            @Override
+            public boolean matches(CharSequence rawPassword, String encodedPassword) {
+                return true;
+            }
+        };
+
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        BulkheadPasswordEncoder encoder = new BulkheadPasswordEncoder(blocking, 1, 1, meterRegistry);
+
+        // Act
+
+        CompletableFuture<String> running = CompletableFuture.supplyAsync(() -> encoder.encode("a"));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        CompletableFuture<String> queued = CompletableFuture.supplyAsync(() -> encoder.encode("b"));
+        while (meterRegistry.get("executor.queued").tag("name", BulkheadPasswordEncoder.METRIC_PREFIX).gauge().value() < 1) {
+            Thread.sleep(10);
+        }
+
+        // Assert
+
+        assertThrows(ServiceOverloadedException.class, () -> encoder.encode("c"));
+        assertEquals(1, meterRegistry.get(BulkheadPasswordEncoder.METRIC_PREFIX + ".rejected").counter().count());
+
+        release.countDown();
+        assertEquals("encoded", running.get(5, TimeUnit.SECONDS));
+        assertEquals("encoded", queued.get(5, TimeUnit.SECONDS));
+
+        encoder.destroy();
+    }
+}
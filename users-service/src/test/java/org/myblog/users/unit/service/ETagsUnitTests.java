@@ -0,0 +1,43 @@
+package org.myblog.users.unit.service;
+
+import org.junit.jupiter.api.Test;
+import org.myblog.users.dto.response.PageResponse;
+import org.myblog.users.dto.response.UserResponse;
+import org.myblog.users.util.ETags;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ETagsUnitTests {
+    @Test
+    public void parseVersion_Ok() {
+        // Act & Assert
+
+        assertEquals(7, ETags.parseVersion(ETags.of(7)));
+        assertNull(ETags.parseVersion(null));
+        assertNull(ETags.parseVersion("*"));
+        assertEquals(-1, ETags.parseVersion("W/\"7\""));
+        assertEquals(-1, ETags.parseVersion("\"abc\""));
+    }
+
+    @Test
+    public void of_PageChangesWithVersions() {
+        // Arrange
+
+        UserResponse user = new UserResponse(1, "maxsmg", "maxsmg@myblog.org", List.of(), 0);
+        UserResponse updated = new UserResponse(1, "maxsmg", "maxsmg@myblog.org", List.of(), 1);
+
+        // Act
+
+        String first = ETags.of(new PageResponse<>(List.of(user), null, 1L));
+        String same = ETags.of(new PageResponse<>(List.of(user), null, 1L));
+        String changed = ETags.of(new PageResponse<>(List.of(updated), null, 1L));
+
+        // Assert
+
+        assertEquals(first, same);
+        assertNotEquals(first, changed);
+        assertTrue(first.startsWith("\"") && first.endsWith("\""));
+    }
+}
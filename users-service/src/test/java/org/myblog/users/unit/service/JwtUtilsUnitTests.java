@@ -0,0 +1,266 @@
+package org.myblog.users.unit.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import org.apache.logging.log4j.LogManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.myblog.users.appenum.RoleEnum;
+import org.myblog.users.config.JwtSigningProperties;
+import org.myblog.users.model.JwtInfo;
+import org.myblog.users.service.security.GrantedAuthorities;
+import org.myblog.users.service.security.UserDetailsImpl;
+import org.myblog.users.service.security.jwt.JwtSigningKeys;
+import org.myblog.users.service.security.jwt.JwtUtils;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigInteger;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.interfaces.RSAPublicKey;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JwtUtilsUnitTests {
+    private static final String SECRET = "Y294cGxleC1zZWN1cmUtcmFfZG9TLXN0cmluZy1rZXkzMjM0NTY";
+
+    private JwtUtils jwtUtils;
+
+    @BeforeEach
+    public void init() {
+        jwtUtils = createJwtUtils(new JwtSigningProperties());
+    }
+
+    public static JwtUtils createJwtUtils(JwtSigningProperties properties) {
+        JwtSigningKeys signingKeys = new JwtSigningKeys();
+        ReflectionTestUtils.setField(signingKeys, "logger", LogManager.getLogger(JwtUtilsUnitTests.class));
+        ReflectionTestUtils.setField(signingKeys, "properties", properties);
+        ReflectionTestUtils.setField(signingKeys, "jwtSecret", SECRET);
+        signingKeys.init();
+
+        JwtUtils result = new JwtUtils();
+        ReflectionTestUtils.setField(result, "logger", LogManager.getLogger(JwtUtilsUnitTests.class));
+        ReflectionTestUtils.setField(result, "objectMapper", new ObjectMapper());
+        ReflectionTestUtils.setField(result, "signingKeys", signingKeys);
+        ReflectionTestUtils.setField(result, "jwtExpirationMs", 60000);
+        result.init();
+
+        return result;
+    }
+
+    private static JwtSigningProperties.KeyProperties rsaKey(String id, KeyPair keyPair, boolean withPrivateKey) {
+        JwtSigningProperties.KeyProperties result = new JwtSigningProperties.KeyProperties();
+        result.setId(id);
+        result.setPublicKey(Base64.getEncoder().encodeToString(keyPair.getPublic().getEncoded()));
+        if (withPrivateKey) {
+            result.setPrivateKey(Base64.getEncoder().encodeToString(keyPair.getPrivate().getEncoded()));
+        }
+
+        return result;
+    }
+
+    private String generate() {
+        UserDetailsImpl principal = new UserDetailsImpl(3, "maxsmg", "maxsmg@myblog.org", "encoded",
+                List.of(new SimpleGrantedAuthority("ROLE_USER")));
+
+        return jwtUtils.generateJwtToken(new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities()),
+                List.of("ROLE_USER"));
+    }
+
+    @Test
+    public void getVerifiedClaims_Ok() {
+        // Arrange
+
+        String token = generate();
+
+        // Act
+
+        Claims actual = jwtUtils.getVerifiedClaims(token);
+
+        // Assert
+
+        assertNotNull(actual);
+        assertEquals("maxsmg", actual.getSubject());
+    }
+
+    @Test
+    public void getVerifiedClaims_TamperedSignature() {
+        // Arrange
+
+        String token = generate();
+        String tampered = token.substring(0, token.length() - 2) + (token.endsWith("AA") ? "BB" : "AA");
+
+        // Act & Assert
+
+        assertNull(jwtUtils.getVerifiedClaims(tampered));
+        assertNull(jwtUtils.getVerifiedClaims("not.a.token"));
+        assertNull(jwtUtils.getVerifiedClaims(""));
+    }
+
+    @Test
+    public void getUserDataFromJwtToken_Ok() {
+        // Arrange
+
+        String token = generate();
+
+        // Act
+
+        JwtInfo actual = jwtUtils.getUserDataFromJwtToken(token);
+
+        // Assert
+
+        assertEquals(3, actual.getUserInfo().getId());
+        assertTrue(actual.getExpiration().getTime() > System.currentTimeMillis());
+    }
+
+    @Test
+    public void getUserDetailsFromClaims_Ok() {
+        // Arrange
+
+        Claims claims = jwtUtils.getVerifiedClaims(generate());
+
+        // Act
+
+        UserDetailsImpl actual = jwtUtils.getUserDetailsFromClaims(claims);
+
+        // Assert
+
+        assertEquals(3, actual.getId());
+        assertEquals("maxsmg", actual.getUsername());
+        assertEquals(List.of("ROLE_USER"), actual.getAuthorities().stream().map(i -> i.getAuthority()).toList());
+        assertSame(GrantedAuthorities.of(RoleEnum.ROLE_USER), actual.getAuthorities().iterator().next());
+    }
+
+    @Test
+    public void rs256_KeyRotation() throws Exception {
+        // Arrange
+
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        KeyPair oldKeyPair = generator.generateKeyPair();
+        KeyPair newKeyPair = generator.generateKeyPair();
+
+        JwtSigningProperties oldProperties = new JwtSigningProperties();
+        oldProperties.setAlgorithm(SignatureAlgorithm.RS256);
+        oldProperties.setActiveKeyId("old");
+        oldProperties.setKeys(List.of(rsaKey("old", oldKeyPair, true)));
+
+        JwtSigningProperties rotatedProperties = new JwtSigningProperties();
+        rotatedProperties.setAlgorithm(SignatureAlgorithm.RS256);
+        rotatedProperties.setActiveKeyId("new");
+        rotatedProperties.setKeys(List.of(rsaKey("new", newKeyPair, true), rsaKey("old", oldKeyPair, false)));
+
+        String oldToken = createJwtUtils(oldProperties).generateJwtToken(
+                new UsernamePasswordAuthenticationToken(new UserDetailsImpl(3, "maxsmg", null, null, List.of()), null),
+                List.of("ROLE_USER"));
+
+        // Act
+
+        JwtUtils rotated = createJwtUtils(rotatedProperties);
+        String newToken = rotated.generateJwtToken(
+                new UsernamePasswordAuthenticationToken(new UserDetailsImpl(3, "maxsmg", null, null, List.of()), null),
+                List.of("ROLE_USER"));
+
+        // Assert
+
+        assertNotNull(rotated.getVerifiedClaims(oldToken));
+        assertNotNull(rotated.getVerifiedClaims(newToken));
+        assertNull(jwtUtils.getVerifiedClaims(newToken));
+
+        Claims verifiedWithJwk = Jwts.parserBuilder()
+                .setSigningKey(newKeyPair.getPublic())
+                .build()
+                .parseClaimsJws(newToken)
+                .getBody();
+        assertEquals("maxsmg", verifiedWithJwk.getSubject());
+    }
+
+    @Test
+    public void jwks_PublishesRsaKeys() throws Exception {
+        // Arrange
+
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        KeyPair keyPair = generator.generateKeyPair();
+
+        JwtSigningProperties properties = new JwtSigningProperties();
+        properties.setAlgorithm(SignatureAlgorithm.RS256);
+        properties.setActiveKeyId("key-1");
+        properties.setKeys(List.of(rsaKey("key-1", keyPair, true)));
+
+        JwtSigningKeys signingKeys = new JwtSigningKeys();
+        ReflectionTestUtils.setField(signingKeys, "logger", LogManager.getLogger(JwtUtilsUnitTests.class));
+        ReflectionTestUtils.setField(signingKeys, "properties", properties);
+        ReflectionTestUtils.setField(signingKeys, "jwtSecret", SECRET);
+
+        // Act
+
+        signingKeys.init();
+
+        // Assert
+
+        List<?> keys = (List<?>) signingKeys.getJwks().get("keys");
+        Map<?, ?> jwk = (Map<?, ?>) keys.get(0);
+        RSAPublicKey publicKey = (RSAPublicKey) keyPair.getPublic();
+
+        assertEquals(1, keys.size());
+        assertEquals("key-1", jwk.get("kid"));
+        assertEquals("RS256", jwk.get("alg"));
+        assertEquals(publicKey.getModulus(), new BigInteger(1, Base64.getUrlDecoder().decode((String) jwk.get("n"))));
+        assertEquals(publicKey.getPublicExponent(), new BigInteger(1, Base64.getUrlDecoder().decode((String) jwk.get("e"))));
+    }
+
+    @Test
+    public void rs256_RejectsHmacTokens() throws Exception {
+        // Arrange
+
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        KeyPair keyPair = generator.generateKeyPair();
+
+        JwtSigningProperties properties = new JwtSigningProperties();
+        properties.setAlgorithm(SignatureAlgorithm.RS256);
+        properties.setActiveKeyId("key-1");
+        properties.setKeys(List.of(rsaKey("key-1", keyPair, true)));
+
+        JwtSigningProperties legacyProperties = new JwtSigningProperties();
+        legacyProperties.setAlgorithm(SignatureAlgorithm.RS256);
+        legacyProperties.setActiveKeyId("key-1");
+        legacyProperties.setKeys(List.of(rsaKey("key-1", keyPair, true)));
+        legacyProperties.setLegacyHmacUntil(Instant.now().plusSeconds(3600));
+
+        JwtSigningProperties expiredProperties = new JwtSigningProperties();
+        expiredProperties.setAlgorithm(SignatureAlgorithm.RS256);
+        expiredProperties.setActiveKeyId("key-1");
+        expiredProperties.setKeys(List.of(rsaKey("key-1", keyPair, true)));
+        expiredProperties.setLegacyHmacUntil(Instant.now().minusSeconds(1));
+
+        String hmacToken = generate();
+
+        // Act & Assert
+
+        assertNull(createJwtUtils(properties).getVerifiedClaims(hmacToken));
+        assertNotNull(createJwtUtils(legacyProperties).getVerifiedClaims(hmacToken));
+        assertNull(createJwtUtils(expiredProperties).getVerifiedClaims(hmacToken));
+    }
+
+    @Test
+    public void rs256_WithoutKeysFailsStartup() {
+        // Arrange
+
+        JwtSigningProperties properties = new JwtSigningProperties();
+        properties.setAlgorithm(SignatureAlgorithm.RS256);
+
+        // Act & Assert
+
+        assertThrows(IllegalStateException.class, () -> createJwtUtils(properties));
+    }
+}
@@ -0,0 +1,87 @@
+package org.myblog.users.unit.service;
+
+import org.apache.logging.log4j.LogManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.myblog.users.repository.UserRepository;
+import org.myblog.users.service.UserCache;
+import org.myblog.users.service.security.PasswordUpgradeService;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class PasswordUpgradeServiceUnitTests {
+    private PasswordEncoder encoder;
+
+    private UserRepository userRepository;
+
+    private UserCache userCache;
+
+    private PasswordUpgradeService passwordUpgradeService;
+
+    @BeforeEach
+    public void init() {
+        BCryptPasswordEncoder bcrypt = new BCryptPasswordEncoder(5);
+        DelegatingPasswordEncoder delegating = new DelegatingPasswordEncoder("bcrypt", Map.of("bcrypt", bcrypt));
+        delegating.setDefaultPasswordEncoderForMatches(bcrypt);
+        encoder = delegating;
+
+        userRepository = mock(UserRepository.class);
+        userCache = mock(UserCache.class);
+
+        passwordUpgradeService = new PasswordUpgradeService();
+        ReflectionTestUtils.setField(passwordUpgradeService, "logger", LogManager.getLogger(PasswordUpgradeServiceUnitTests.class));
+        ReflectionTestUtils.setField(passwordUpgradeService, "userRepository", userRepository);
+        ReflectionTestUtils.setField(passwordUpgradeService, "encoder", encoder);
+        ReflectionTestUtils.setField(passwordUpgradeService, "userCache", userCache);
+    }
+
+    @Test
+    public void upgradeIfNeeded_RehashesLegacyAndWeakHashes() {
+        // Arrange
+
+        String legacy = new BCryptPasswordEncoder(4).encode("password");
+        String weak = "{bcrypt}" + new BCryptPasswordEncoder(4).encode("password");
+
+        when(userRepository.updatePasswordIfUnchanged(eq(1), eq(legacy), anyString())).thenReturn(1);
+        when(userRepository.updatePasswordIfUnchanged(eq(2), eq(weak), anyString())).thenReturn(0);
+
+        // Act
+
+        passwordUpgradeService.upgradeIfNeeded(1, "password", legacy);
+        passwordUpgradeService.upgradeIfNeeded(2, "password", weak);
+
+        // Assert
+
+        assertTrue(encoder.matches("password", legacy));
+        verify(userRepository, timeout(5000)).updatePasswordIfUnchanged(eq(1), eq(legacy),
+                argThat(i -> i.startsWith("{bcrypt}$2a$05$") && encoder.matches("password", i)));
+        verify(userRepository, timeout(5000)).updatePasswordIfUnchanged(eq(2), eq(weak), startsWith("{bcrypt}$2a$05$"));
+        verify(userCache, timeout(5000)).invalidate(1);
+        passwordUpgradeService.destroy();
+        verify(userCache, never()).invalidate(2);
+    }
+
+    @Test
+    public void upgradeIfNeeded_SkipsCurrentHashes() {
+        // Arrange
+
+        String current = encoder.encode("password");
+
+        // Act
+
+        passwordUpgradeService.upgradeIfNeeded(1, "password", current);
+        passwordUpgradeService.destroy();
+
+        // Assert
+
+        verifyNoInteractions(userRepository, userCache);
+    }
+}
@@ -0,0 +1,116 @@
+package org.myblog.users.unit.service;
+
+import org.junit.jupiter.api.Test;
+import org.myblog.users.kafka.producer.PgOutputDecoder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PgOutputDecoderUnitTests {
+    private static ByteBuffer message(char type, IOConsumer body) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(type);
+        body.accept(out);
+
+        return ByteBuffer.wrap(bytes.toByteArray());
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        out.write(value.getBytes(StandardCharsets.UTF_8));
+        out.writeByte(0);
+    }
+
+    private static void writeText(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeByte('t');
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    @Test
+    public void decode_RelationInsertCommit() throws IOException {
+        // Arrange
+
+        PgOutputDecoder decoder = new PgOutputDecoder();
+        List<String> columns = List.of("id", "key", "topic", "value", "last_error");
+
+        ByteBuffer relation = message('R', out -> {
+            out.writeInt(16384);
+            writeString(out, "public");
+            writeString(out, "outbox_model");
+            out.writeByte('d');
+            out.writeShort(columns.size());
+            for (String i : columns) {
+                out.writeByte(0);
+                writeString(out, i);
+                out.writeInt(23);
+                out.writeInt(-1);
+            }
+        });
+        ByteBuffer insert = message('I', out -> {
+            out.writeInt(16384);
+            out.writeByte('N');
+            out.writeShort(columns.size());
+            writeText(out, "51");
+            writeText(out, "7");
+            writeText(out, "user.created");
+            writeText(out, "{\"id\":7,\"username\":\"пользователь\"}");
+            out.writeByte('n');
+        });
+        ByteBuffer commit = message('C', out -> {
+            out.writeByte(0);
+            out.writeLong(0x16B3748L);
+            out.writeLong(0x16B3778L);
+            out.writeLong(1000L);
+        });
+
+        // Act
+
+        PgOutputDecoder.Message decodedRelation = decoder.decode(relation);
+        PgOutputDecoder.Insert decodedInsert = (PgOutputDecoder.Insert) decoder.decode(insert);
+        PgOutputDecoder.Commit decodedCommit = (PgOutputDecoder.Commit) decoder.decode(commit);
+
+        // Assert
+
+        assertInstanceOf(PgOutputDecoder.Relation.class, decodedRelation);
+        assertEquals("outbox_model", decodedInsert.relation().name());
+        assertEquals("51", decodedInsert.values().get("id"));
+        assertEquals("7", decodedInsert.values().get("key"));
+        assertEquals("user.created", decodedInsert.values().get("topic"));
+        assertEquals("{\"id\":7,\"username\":\"пользователь\"}", decodedInsert.values().get("value"));
+        assertTrue(decodedInsert.values().containsKey("last_error"));
+        assertNull(decodedInsert.values().get("last_error"));
+        assertEquals(0x16B3778L, decodedCommit.endLsn());
+    }
+
+    @Test
+    public void decode_SkipsUnsupportedMessages() throws IOException {
+        // Arrange
+
+        PgOutputDecoder decoder = new PgOutputDecoder();
+        ByteBuffer origin = message('O', out -> {
+            out.writeLong(1L);
+            writeString(out, "origin");
+        });
+
+        // Act & Assert
+
+        assertNull(decoder.decode(origin));
+        assertThrows(IllegalStateException.class, () -> decoder.decode(message('I', out -> {
+            out.writeInt(1);
+            out.writeByte('N');
+            out.writeShort(0);
+        })));
+    }
+
+    private interface IOConsumer {
+        void accept(DataOutputStream out) throws IOException;
+    }
+}
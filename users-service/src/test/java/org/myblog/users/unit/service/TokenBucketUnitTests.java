@@ -0,0 +1,32 @@
+package org.myblog.users.unit.service;
+
+import org.junit.jupiter.api.Test;
+import org.myblog.users.util.TokenBucket;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TokenBucketUnitTests {
+    @Test
+    public void tryAcquire_AllowsBurstThenRefills() {
+        // Arrange
+
+        long refill = 1_000_000L;
+        TokenBucket bucket = new TokenBucket(3, refill, 0);
+
+        // Act & Assert
+
+        assertTrue(bucket.tryAcquire(0));
+        assertTrue(bucket.tryAcquire(0));
+        assertTrue(bucket.tryAcquire(0));
+        assertFalse(bucket.tryAcquire(0));
+        assertEquals(refill, bucket.nanosUntilAvailable(0));
+
+        assertTrue(bucket.tryAcquire(refill));
+        assertFalse(bucket.tryAcquire(refill));
+
+        assertTrue(bucket.tryAcquire(refill * 10));
+        assertTrue(bucket.tryAcquire(refill * 10));
+        assertTrue(bucket.tryAcquire(refill * 10));
+        assertFalse(bucket.tryAcquire(refill * 10));
+    }
+}
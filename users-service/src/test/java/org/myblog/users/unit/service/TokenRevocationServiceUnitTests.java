@@ -0,0 +1,199 @@
+package org.myblog.users.unit.service;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import org.apache.logging.log4j.LogManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.myblog.users.model.TokenRevocationModel;
+import org.myblog.users.model.UserModel;
+import org.myblog.users.repository.TokenRevocationRepository;
+import org.myblog.users.repository.UserRepository;
+import org.myblog.users.service.security.jwt.JwtUtils;
+import org.myblog.users.service.security.jwt.TokenRevocationService;
+import org.myblog.users.service.security.jwt.VerifiedToken;
+import org.springframework.data.domain.Limit;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Instant;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class TokenRevocationServiceUnitTests {
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private TokenRevocationRepository tokenRevocationRepository;
+
+    @Mock
+    private JwtUtils jwtUtils;
+
+    private TokenRevocationService tokenRevocationService;
+
+    @BeforeEach
+    public void init() {
+        tokenRevocationService = new TokenRevocationService();
+        ReflectionTestUtils.setField(tokenRevocationService, "logger", LogManager.getLogger(TokenRevocationServiceUnitTests.class));
+        ReflectionTestUtils.setField(tokenRevocationService, "userRepository", userRepository);
+        ReflectionTestUtils.setField(tokenRevocationService, "tokenRevocationRepository", tokenRevocationRepository);
+        ReflectionTestUtils.setField(tokenRevocationService, "jwtUtils", jwtUtils);
+        ReflectionTestUtils.setField(tokenRevocationService, "expectedRevokedTokens", 1000L);
+        ReflectionTestUtils.setField(tokenRevocationService, "falsePositiveProbability", 0.01);
+        ReflectionTestUtils.setField(tokenRevocationService, "refreshLookbackIds", 10);
+    }
+
+    private static VerifiedToken token(int userId, int tokenGeneration, String tokenId) {
+        Claims claims = Jwts.claims().setSubject("maxsmg").setId(tokenId);
+        claims.put(JwtUtils.CLAIM_USER_ID, userId);
+        claims.put(JwtUtils.CLAIM_TOKEN_GENERATION, tokenGeneration);
+        claims.setExpiration(new Date(System.currentTimeMillis() + 60000));
+
+        return VerifiedToken.of(claims, null);
+    }
+
+    @Test
+    public void init_LoadsGenerationsAndRevokedTokens() {
+        // Arrange
+
+        UserRepository.TokenGenerationView generation = mock(UserRepository.TokenGenerationView.class);
+        when(generation.getId()).thenReturn(3);
+        when(generation.getTokenGeneration()).thenReturn(2);
+
+        TokenRevocationModel revocation = new TokenRevocationModel();
+        revocation.setId(1);
+        revocation.setUserId(4);
+        revocation.setTokenId("revoked");
+        revocation.setExpiresAt(Instant.now().plusSeconds(60));
+
+        when(userRepository.findTokenGenerations()).thenReturn(List.of(generation));
+        when(tokenRevocationRepository.findByIdGreaterThanOrderByIdAsc(anyInt(), any(Limit.class))).thenReturn(List.of(revocation));
+
+        // Act
+
+        tokenRevocationService.init();
+
+        // Assert
+
+        assertTrue(tokenRevocationService.isRevoked(token(3, 1, "a")));
+        assertFalse(tokenRevocationService.isRevoked(token(3, 2, "a")));
+        assertTrue(tokenRevocationService.isRevoked(token(4, 0, "revoked")));
+        assertFalse(tokenRevocationService.isRevoked(token(4, 0, "other")));
+    }
+
+    @Test
+    public void revokeAll_BumpsGeneration() {
+        // Arrange
+
+        when(jwtUtils.getJwtExpirationMs()).thenReturn(60000L);
+        tokenRevocationService.init();
+
+        UserModel user = new UserModel();
+        user.setId(5);
+
+        VerifiedToken issuedBefore = token(5, 0, "a");
+
+        // Act
+
+        tokenRevocationService.revokeAll(user);
+
+        // Assert
+
+        assertEquals(1, user.getTokenGeneration());
+        assertTrue(tokenRevocationService.isRevoked(issuedBefore));
+        assertFalse(tokenRevocationService.isRevoked(token(5, 1, "b")));
+        verify(tokenRevocationRepository).save(any(TokenRevocationModel.class));
+    }
+
+    @Test
+    public void revokeAll_AppliedOnlyAfterCommit() {
+        // Arrange
+
+        when(jwtUtils.getJwtExpirationMs()).thenReturn(60000L);
+        tokenRevocationService.init();
+
+        VerifiedToken issuedBefore = token(5, 0, "a");
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            // Act
+
+            tokenRevocationService.revokeAll(5, 1);
+
+            boolean revokedBeforeCommit = tokenRevocationService.isRevoked(issuedBefore);
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+
+            // Assert
+
+            assertFalse(revokedBeforeCommit);
+            assertTrue(tokenRevocationService.isRevoked(issuedBefore));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    public void revokeAll_RolledBackIsNotApplied() {
+        // Arrange
+
+        when(jwtUtils.getJwtExpirationMs()).thenReturn(60000L);
+        tokenRevocationService.init();
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            // Act
+
+            tokenRevocationService.revokeAll(5, 1);
+            TransactionSynchronizationManager.getSynchronizations()
+                    .forEach(i -> i.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+
+            // Assert
+
+            assertFalse(tokenRevocationService.isRevoked(token(5, 0, "a")));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    public void refresh_RereadsLateCommittedRevocations() {
+        // Arrange
+
+        TokenRevocationModel seen = new TokenRevocationModel();
+        seen.setId(20);
+        seen.setUserId(4);
+        seen.setTokenId("seen");
+        seen.setExpiresAt(Instant.now().plusSeconds(60));
+
+        TokenRevocationModel late = new TokenRevocationModel();
+        late.setId(19);
+        late.setUserId(6);
+        late.setTokenGeneration(3);
+        late.setExpiresAt(Instant.now().plusSeconds(60));
+
+        when(tokenRevocationRepository.findByIdGreaterThanOrderByIdAsc(eq(-10), any(Limit.class))).thenReturn(List.of(seen));
+        when(tokenRevocationRepository.findByIdGreaterThanOrderByIdAsc(eq(10), any(Limit.class))).thenReturn(List.of(late, seen));
+        tokenRevocationService.init();
+
+        // Act
+
+        tokenRevocationService.refresh();
+
+        // Assert
+
+        assertTrue(tokenRevocationService.isRevoked(token(6, 2, "b")));
+        assertTrue(tokenRevocationService.isRevoked(token(4, 0, "seen")));
+    }
+}
@@ -0,0 +1,64 @@
+package org.myblog.users.unit.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.myblog.users.dto.response.UserResponse;
+import org.myblog.users.service.UserCache;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class UserCacheUnitTests {
+    private SimpleMeterRegistry meterRegistry;
+
+    private UserCache userCache;
+
+    @BeforeEach
+    public void init() {
+        meterRegistry = new SimpleMeterRegistry();
+
+        userCache = new UserCache();
+        ReflectionTestUtils.setField(userCache, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(userCache, "enabled", true);
+        ReflectionTestUtils.setField(userCache, "maximumSize", 100L);
+        ReflectionTestUtils.setField(userCache, "expireAfterWriteMs", 60000L);
+        userCache.init();
+    }
+
+    @Test
+    public void getById_LoadsOnceUntilInvalidated() {
+        // Arrange
+
+        AtomicInteger loads = new AtomicInteger();
+        UserResponse expected = new UserResponse(1, "maxsmg", "maxsmg@myblog.org", List.of(), 0);
+
+        // Act
+
+        UserResponse first = userCache.getById(1, i -> {
+            loads.incrementAndGet();
+            return Optional.of(expected);
+        });
+        UserResponse second = userCache.getById(1, i -> {
+            loads.incrementAndGet();
+            return Optional.of(expected);
+        });
+        userCache.invalidate(1);
+        UserResponse third = userCache.getById(1, i -> {
+            loads.incrementAndGet();
+            return Optional.of(expected);
+        });
+
+        // Assert
+
+        assertSame(expected, first);
+        assertSame(expected, second);
+        assertSame(expected, third);
+        assertEquals(2, loads.get());
+        assertEquals(1.0 / 3, meterRegistry.get("cache.hit.ratio").tag("cache", UserCache.BY_ID_CACHE_NAME).gauge().value(), 1e-9);
+    }
+}
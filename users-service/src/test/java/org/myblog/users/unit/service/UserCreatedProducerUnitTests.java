@@ -0,0 +1,328 @@
+package org.myblog.users.unit.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.logging.log4j.LogManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.myblog.users.appenum.OutboxRelayModeEnum;
+import org.myblog.users.kafka.event.UserCreatedEvent;
+import org.myblog.users.kafka.producer.UserCreatedProducer;
+import org.myblog.users.model.OutboxModel;
+import org.myblog.users.repository.OutboxDeadLetterRepository;
+import org.myblog.users.repository.OutboxRepository;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class UserCreatedProducerUnitTests {
+    private KafkaTemplate<Integer, UserCreatedEvent> kafkaTemplate;
+
+    private OutboxRepository outboxRepository;
+
+    private OutboxDeadLetterRepository outboxDeadLetterRepository;
+
+    private TransactionTemplate transactionTemplate;
+
+    private UserCreatedProducer userCreatedProducer;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    public void init() {
+        kafkaTemplate = mock(KafkaTemplate.class);
+        outboxRepository = mock(OutboxRepository.class);
+        outboxDeadLetterRepository = mock(OutboxDeadLetterRepository.class);
+        transactionTemplate = mock(TransactionTemplate.class);
+        when(transactionTemplate.execute(any())).thenAnswer(i -> i.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+
+        userCreatedProducer = new UserCreatedProducer();
+        ReflectionTestUtils.setField(userCreatedProducer, "logger", LogManager.getLogger(UserCreatedProducerUnitTests.class));
+        ReflectionTestUtils.setField(userCreatedProducer, "kafkaTemplate", kafkaTemplate);
+        ReflectionTestUtils.setField(userCreatedProducer, "outboxRepository", outboxRepository);
+        ReflectionTestUtils.setField(userCreatedProducer, "objectMapper", new ObjectMapper());
+        ReflectionTestUtils.setField(userCreatedProducer, "transactionTemplate", transactionTemplate);
+        ReflectionTestUtils.setField(userCreatedProducer, "relayMode", OutboxRelayModeEnum.POLLING);
+        ReflectionTestUtils.setField(userCreatedProducer, "partitions", 16);
+        ReflectionTestUtils.setField(userCreatedProducer, "partitionsPerClaim", 4);
+        ReflectionTestUtils.setField(userCreatedProducer, "gracePeriodMs", 5000L);
+        ReflectionTestUtils.setField(userCreatedProducer, "batchSize", 3);
+        ReflectionTestUtils.setField(userCreatedProducer, "maxInFlight", 2);
+        ReflectionTestUtils.setField(userCreatedProducer, "sendTimeoutMs", 5000L);
+        ReflectionTestUtils.setField(userCreatedProducer, "leaseMs", 10000L);
+        ReflectionTestUtils.setField(userCreatedProducer, "outboxDeadLetterRepository", outboxDeadLetterRepository);
+        ReflectionTestUtils.setField(userCreatedProducer, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(userCreatedProducer, "maxAttempts", 3);
+        ReflectionTestUtils.setField(userCreatedProducer, "backoffMs", 1000L);
+        ReflectionTestUtils.setField(userCreatedProducer, "maxBackoffMs", 60000L);
+        userCreatedProducer.init();
+    }
+
+    private static OutboxModel message(int id) {
+        OutboxModel result = new OutboxModel();
+        result.setId(id);
+        result.setTopic(UserCreatedProducer.TOPIC_NAME);
+        result.setKey(id);
+        result.setValue(String.format("{\"id\":%d,\"username\":\"user%d\"}", id, id));
+
+        return result;
+    }
+
+    @Test
+    public void watch_DeletesAcknowledgedBatch() {
+        // Arrange
+
+        when(outboxRepository.lockPartitions(16, 4)).thenReturn(List.of(1, 2, 3, 7));
+        when(outboxRepository.findBatch(eq(UserCreatedProducer.TOPIC_NAME), eq(16), eq(List.of(1, 2, 3, 7)),
+                argThat(i -> i.isBefore(Instant.now().minusMillis(4000))), any(Instant.class), eq(false), eq(3)))
+                .thenReturn(List.of(message(1), message(2), message(3)));
+        when(kafkaTemplate.send(eq(UserCreatedProducer.TOPIC_NAME), anyInt(), any(UserCreatedEvent.class)))
+                .thenAnswer(i -> i.<Integer>getArgument(1) == 2
+                        ? CompletableFuture.failedFuture(new IllegalStateException("broker is down"))
+                        : CompletableFuture.completedFuture(mock(SendResult.class)));
+
+        // Act
+
+        int actual = userCreatedProducer.watch();
+
+        // Assert
+
+        assertEquals(3, actual);
+        verify(transactionTemplate).execute(any());
+        verify(outboxRepository).lease(eq(List.of(1, 2, 3)), argThat(i -> i.isAfter(Instant.now().plusMillis(9000))));
+        verify(kafkaTemplate, times(3)).send(eq(UserCreatedProducer.TOPIC_NAME), anyInt(), any(UserCreatedEvent.class));
+        verify(outboxRepository).deleteByIds(argThat(i -> i.size() == 2 && i.containsAll(List.of(1, 3))));
+        verify(outboxRepository, never()).delete(any(OutboxModel.class));
+        verify(outboxRepository).markFailed(eq(2), eq(1), argThat(i -> i.isAfter(Instant.now().plusMillis(500))), eq("broker is down"));
+        verifyNoInteractions(outboxDeadLetterRepository);
+    }
+
+    @Test
+    public void watch_IsolatesPoisonAndExhaustedMessages() {
+        // Arrange
+
+        OutboxModel poison = message(1);
+        poison.setValue("{not json");
+
+        OutboxModel exhausted = message(2);
+        exhausted.setAttempts(2);
+
+        when(outboxRepository.lockPartitions(16, 4)).thenReturn(List.of(1, 2, 3));
+        when(outboxRepository.findBatch(any(), anyInt(), any(), any(), any(), anyBoolean(), anyInt()))
+                .thenReturn(List.of(poison, exhausted, message(3)));
+        when(kafkaTemplate.send(eq(UserCreatedProducer.TOPIC_NAME), anyInt(), any(UserCreatedEvent.class)))
+                .thenAnswer(i -> i.<Integer>getArgument(1) == 2
+                        ? CompletableFuture.failedFuture(new IllegalStateException("record is too large"))
+                        : CompletableFuture.completedFuture(mock(SendResult.class)));
+
+        // Act
+
+        int actual = userCreatedProducer.watch();
+
+        // Assert
+
+        assertEquals(3, actual);
+        verify(kafkaTemplate, times(2)).send(eq(UserCreatedProducer.TOPIC_NAME), anyInt(), any(UserCreatedEvent.class));
+        verify(outboxRepository).deleteByIds(List.of(3));
+        verify(outboxDeadLetterRepository).save(argThat(i -> i.getOutboxId() == 1 && i.getAttempts() == 0));
+        verify(outboxDeadLetterRepository).save(argThat(i -> i.getOutboxId() == 2 && i.getAttempts() == 3
+                && "record is too large".equals(i.getLastError())));
+        verify(outboxRepository).deleteByIds(List.of(1));
+        verify(outboxRepository).deleteByIds(List.of(2));
+        verify(outboxRepository, never()).markFailed(anyInt(), anyInt(), any(), any());
+    }
+
+    @Test
+    public void watch_SendsAfterClaimIsCommitted() {
+        // Arrange
+
+        AtomicBoolean inTransaction = new AtomicBoolean();
+        doAnswer(i -> {
+            inTransaction.set(true);
+            try {
+                return i.<TransactionCallback<?>>getArgument(0).doInTransaction(null);
+            } finally {
+                inTransaction.set(false);
+            }
+        }).when(transactionTemplate).execute(any());
+        when(outboxRepository.lockPartitions(16, 4)).thenReturn(List.of(1));
+        when(outboxRepository.findBatch(any(), anyInt(), any(), any(), any(), anyBoolean(), anyInt())).thenReturn(List.of(message(1)));
+        when(kafkaTemplate.send(eq(UserCreatedProducer.TOPIC_NAME), anyInt(), any(UserCreatedEvent.class)))
+                .thenAnswer(i -> inTransaction.get()
+                        ? CompletableFuture.failedFuture(new IllegalStateException("sent inside the claim transaction"))
+                        : CompletableFuture.completedFuture(mock(SendResult.class)));
+
+        // Act
+
+        userCreatedProducer.watch();
+
+        // Assert
+
+        verify(outboxRepository).deleteByIds(List.of(1));
+        verify(outboxRepository, never()).markFailed(anyInt(), anyInt(), any(), any());
+    }
+
+    @Test
+    public void watch_AllPartitionsClaimedElsewhere() {
+        // Arrange
+
+        when(outboxRepository.lockPartitions(16, 4)).thenReturn(List.of());
+
+        // Act
+
+        int actual = userCreatedProducer.watch();
+
+        // Assert
+
+        assertEquals(0, actual);
+        verify(outboxRepository, never()).findBatch(any(), anyInt(), any(), any(), any(), anyBoolean(), anyInt());
+        verifyNoInteractions(kafkaTemplate);
+        verify(outboxRepository, never()).deleteByIds(any());
+    }
+
+    @Test
+    public void watch_WalModeWaitsForDueRetries() {
+        // Arrange
+
+        ReflectionTestUtils.setField(userCreatedProducer, "relayMode", OutboxRelayModeEnum.WAL);
+        ReflectionTestUtils.setField(userCreatedProducer, "backoffMs", 0L);
+        when(outboxRepository.lockPartitions(16, 4)).thenReturn(List.of(1));
+        when(outboxRepository.findBatch(any(), anyInt(), any(), any(), any(), eq(true), anyInt())).thenReturn(List.of());
+        when(outboxRepository.findNextAttemptAt(UserCreatedProducer.TOPIC_NAME)).thenReturn(null);
+
+        // Act
+
+        int first = userCreatedProducer.watch();
+        int idle = userCreatedProducer.watch();
+
+        userCreatedProducer.retryLater(message(1), "broker is down");
+        int retried = userCreatedProducer.watch();
+
+        // Assert
+
+        assertEquals(0, first);
+        assertEquals(0, idle);
+        assertEquals(0, retried);
+        verify(transactionTemplate, times(2)).execute(any());
+        verify(outboxRepository, times(2)).findBatch(any(), anyInt(), any(), any(), any(), eq(true), anyInt());
+        verify(outboxRepository).markFailed(eq(1), eq(1), any(Instant.class), eq("broker is down"));
+    }
+
+    @Test
+    public void handOverExisting_WakesWalPoller() {
+        // Arrange
+
+        ReflectionTestUtils.setField(userCreatedProducer, "relayMode", OutboxRelayModeEnum.WAL);
+        when(outboxRepository.lockPartitions(16, 4)).thenReturn(List.of(1));
+        when(outboxRepository.findBatch(any(), anyInt(), any(), any(), any(), eq(true), anyInt())).thenReturn(List.of());
+        when(outboxRepository.findNextAttemptAt(UserCreatedProducer.TOPIC_NAME)).thenReturn(null);
+        when(outboxRepository.handOver(eq(UserCreatedProducer.TOPIC_NAME), any(Instant.class))).thenReturn(2);
+
+        // Act
+
+        userCreatedProducer.watch();
+        int handedOver = userCreatedProducer.handOverExisting();
+        userCreatedProducer.watch();
+
+        // Assert
+
+        assertEquals(2, handedOver);
+        verify(outboxRepository, times(2)).findBatch(any(), anyInt(), any(), any(), any(), eq(true), anyInt());
+    }
+
+    @Test
+    public void publishAfterCommit_SendsAndDeletesAfterCommitOnly() {
+        // Arrange
+
+        OutboxModel message = message(5);
+        UserCreatedEvent event = new UserCreatedEvent();
+        event.setId(5);
+
+        when(kafkaTemplate.send(UserCreatedProducer.TOPIC_NAME, 5, event))
+                .thenAnswer(i -> CompletableFuture.completedFuture(mock(SendResult.class)));
+
+        // Act
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            userCreatedProducer.publishAfterCommit(message, event);
+
+            verifyNoInteractions(kafkaTemplate);
+
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        // Assert
+
+        verify(kafkaTemplate, timeout(5000)).send(UserCreatedProducer.TOPIC_NAME, 5, event);
+        verify(outboxRepository, timeout(5000)).deleteByIds(List.of(5));
+        userCreatedProducer.destroy();
+    }
+
+    @Test
+    public void publishAfterCommit_DeletesOnPublisherThreadInBatches() throws InterruptedException {
+        // Arrange
+
+        List<CompletableFuture<Object>> sends = List.of(
+                new CompletableFuture<>(), new CompletableFuture<>(), new CompletableFuture<>());
+        List<String> deletingThreads = new CopyOnWriteArrayList<>();
+        List<Integer> deleted = new CopyOnWriteArrayList<>();
+
+        when(kafkaTemplate.send(eq(UserCreatedProducer.TOPIC_NAME), anyInt(), any(UserCreatedEvent.class)))
+                .thenAnswer(i -> sends.get(i.<Integer>getArgument(1) - 1));
+        when(outboxRepository.deleteByIds(any())).thenAnswer(i -> {
+            deletingThreads.add(Thread.currentThread().getName());
+            deleted.addAll(i.getArgument(0));
+            return 1;
+        });
+
+        // Act
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            for (int i = 1; i <= 3; i++) {
+                UserCreatedEvent event = new UserCreatedEvent();
+                event.setId(i);
+                userCreatedProducer.publishAfterCommit(message(i), event);
+            }
+
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        verify(kafkaTemplate, timeout(5000).times(3)).send(eq(UserCreatedProducer.TOPIC_NAME), anyInt(), any(UserCreatedEvent.class));
+        sends.forEach(i -> i.complete(null));
+
+        // Assert
+
+        verify(outboxRepository, timeout(5000).atLeastOnce()).deleteByIds(any());
+        await(() -> deleted.size() == 3);
+        assertTrue(deleted.containsAll(List.of(1, 2, 3)));
+        assertTrue(deletingThreads.stream().allMatch(i -> i.startsWith("outbox-publisher-")));
+        userCreatedProducer.destroy();
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+}
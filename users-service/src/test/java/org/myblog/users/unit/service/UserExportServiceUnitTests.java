@@ -0,0 +1,166 @@
+package org.myblog.users.unit.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.logging.log4j.LogManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.myblog.users.service.UserExportService;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class UserExportServiceUnitTests {
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private JdbcTemplate exportJdbcTemplate;
+
+    private UserExportService userExportService;
+
+    @BeforeEach
+    public void init() {
+        exportJdbcTemplate = mock(JdbcTemplate.class);
+
+        PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+
+        userExportService = new UserExportService();
+        ReflectionTestUtils.setField(userExportService, "logger", LogManager.getLogger(UserExportServiceUnitTests.class));
+        ReflectionTestUtils.setField(userExportService, "objectMapper", objectMapper);
+        ReflectionTestUtils.setField(userExportService, "flushEveryRows", 1);
+        ReflectionTestUtils.setField(userExportService, "exportJdbcTemplate", exportJdbcTemplate);
+        ReflectionTestUtils.setField(userExportService, "readOnlyTransaction", new TransactionTemplate(transactionManager));
+    }
+
+    private static ResultSet row(int id, String username, String email, String roles) throws Exception {
+        ResultSet result = mock(ResultSet.class);
+        when(result.getInt("id")).thenReturn(id);
+        when(result.getString("username")).thenReturn(username);
+        when(result.getString("email")).thenReturn(email);
+        when(result.getString("roles")).thenReturn(roles);
+
+        return result;
+    }
+
+    private void givenRows(int afterId, ResultSet... rows) {
+        doAnswer(i -> {
+            RowCallbackHandler handler = i.getArgument(1);
+            for (ResultSet row : rows) {
+                handler.processRow(row);
+            }
+            return null;
+        }).when(exportJdbcTemplate).query(anyString(), any(RowCallbackHandler.class), eq(afterId));
+    }
+
+    private List<JsonNode> parse(String ndjson) throws Exception {
+        return ndjson.lines().map(i -> {
+            try {
+                return objectMapper.readTree(i);
+            } catch (Exception ex) {
+                throw new IllegalStateException(ex);
+            }
+        }).toList();
+    }
+
+    @Test
+    public void export_WritesNdjsonWithAggregatedRoles() throws Exception {
+        // Arrange
+
+        givenRows(0,
+                row(1, "admin", "admin@myblog.org", "ROLE_ADMIN,ROLE_USER"),
+                row(2, "nobody", "nobody@myblog.org", null));
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        // Act
+
+        userExportService.export(null, false).writeTo(output);
+
+        // Assert
+
+        List<JsonNode> actual = parse(output.toString(StandardCharsets.UTF_8));
+
+        assertEquals(2, actual.size());
+        assertEquals(1, actual.get(0).get("id").asInt());
+        assertEquals("admin", actual.get(0).get("username").asText());
+        assertEquals("admin@myblog.org", actual.get(0).get("email").asText());
+        assertEquals("ROLE_ADMIN", actual.get(0).get("roles").get(0).asText());
+        assertEquals("ROLE_USER", actual.get(0).get("roles").get(1).asText());
+        assertEquals(2, actual.get(1).get("id").asInt());
+        assertTrue(actual.get(1).get("roles").isEmpty());
+        assertFalse(actual.get(0).has("password"));
+    }
+
+    @Test
+    public void export_ResumesAfterCursor() throws Exception {
+        // Arrange
+
+        givenRows(5, row(6, "maxsmg", "maxsmg@myblog.org", "ROLE_USER"));
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        // Act
+
+        userExportService.export(5, false).writeTo(output);
+
+        // Assert
+
+        List<JsonNode> actual = parse(output.toString(StandardCharsets.UTF_8));
+
+        assertEquals(1, actual.size());
+        assertEquals(6, actual.get(0).get("id").asInt());
+        verify(exportJdbcTemplate).query(anyString(), any(RowCallbackHandler.class), eq(5));
+    }
+
+    @Test
+    public void export_Gzip() throws Exception {
+        // Arrange
+
+        givenRows(0, row(1, "admin", "admin@myblog.org", "ROLE_ADMIN"));
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        // Act
+
+        userExportService.export(null, true).writeTo(output);
+
+        // Assert
+
+        String actual;
+        try (GZIPInputStream input = new GZIPInputStream(new ByteArrayInputStream(output.toByteArray()))) {
+            actual = new String(input.readAllBytes(), StandardCharsets.UTF_8);
+        }
+
+        assertEquals("{\"id\":1,\"username\":\"admin\",\"email\":\"admin@myblog.org\",\"roles\":[\"ROLE_ADMIN\"]}\n", actual);
+    }
+
+    @Test
+    public void acceptsGzip_HonoursQualityValues() {
+        // Act & Assert
+
+        assertTrue(UserExportService.acceptsGzip("gzip"));
+        assertTrue(UserExportService.acceptsGzip("deflate, gzip;q=0.5"));
+        assertTrue(UserExportService.acceptsGzip("*"));
+        assertTrue(UserExportService.acceptsGzip("X-GZIP; Q=1"));
+        assertFalse(UserExportService.acceptsGzip(null));
+        assertFalse(UserExportService.acceptsGzip("identity"));
+        assertFalse(UserExportService.acceptsGzip("gzip;q=0"));
+        assertFalse(UserExportService.acceptsGzip("gzip;q=0.000, *"));
+        assertFalse(UserExportService.acceptsGzip("*;q=0"));
+        assertFalse(UserExportService.acceptsGzip("gzip;q=oops"));
+    }
+}
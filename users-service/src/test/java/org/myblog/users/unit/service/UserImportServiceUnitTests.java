@@ -0,0 +1,149 @@
+package org.myblog.users.unit.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.Validation;
+import org.apache.logging.log4j.Logger;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.myblog.users.appenum.RoleEnum;
+import org.myblog.users.dto.response.UserImportReport;
+import org.myblog.users.exception.UsernameIsAlreadyTakenException;
+import org.myblog.users.model.RoleModel;
+import org.myblog.users.model.UserModel;
+import org.myblog.users.repository.UserRepository;
+import org.myblog.users.service.RoleRegistry;
+import org.myblog.users.service.UserImportService;
+import org.myblog.users.service.UsersService;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class UserImportServiceUnitTests {
+    @Mock
+    private Logger logger;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private UsersService usersService;
+
+    @Mock
+    private RoleRegistry roleRegistry;
+
+    @Mock
+    private PasswordEncoder encoder;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @Spy
+    private ObjectMapper objectMapper;
+
+    @InjectMocks
+    private UserImportService userImportService;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    public void init() {
+        ReflectionTestUtils.setField(userImportService, "validator", Validation.buildDefaultValidatorFactory().getValidator());
+        ReflectionTestUtils.setField(userImportService, "chunkSize", 100);
+        ReflectionTestUtils.setField(userImportService, "maxReportedFailures", 100);
+        userImportService.init();
+
+        lenient().when(encoder.encode(any(CharSequence.class))).thenAnswer(i -> "encoded-" + i.getArgument(0));
+        lenient().when(roleRegistry.reference(any(RoleEnum.class))).thenAnswer(i -> new RoleModel(i.getArgument(0)));
+        lenient().doAnswer(i -> {
+            ((Consumer<TransactionStatus>) i.getArgument(0)).accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+    }
+
+    @Test
+    public void importUsers_Ndjson_ReportsPerRecordFailures() throws Exception {
+        // Arrange
+
+        String input = """
+                {"username":"alice","email":"alice@mail.com","password":"password1"}
+                {"username":"bob","email":"not-an-email","password":"password2"}
+                {"username":"alice","email":"alice2@mail.com","password":"password3"}
+                {"username":"carol","email":"carol@mail.com","password":"password4","roles":["ROLE_ADMIN"]}
+                {"username":"dave","email":"dave@mail.com","password":"password5"}
+                """;
+
+        when(userRepository.findExistingUsernames(anyCollection())).thenReturn(List.of("dave"));
+        when(userRepository.findExistingEmails(anyCollection())).thenReturn(List.of());
+
+        // Act
+
+        UserImportReport actual = userImportService.importUsers(
+                new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8)), UserImportService.NDJSON);
+
+        // Assert
+
+        assertEquals(5, actual.getTotal());
+        assertEquals(2, actual.getImported());
+        assertEquals(3, actual.getFailed());
+        assertEquals(List.of(2L, 3L, 5L), actual.getFailures().stream().map(i -> i.getLine()).toList());
+
+        verify(usersService).saveUserAndOutbox(argThat(i -> i.getUsername().equals("alice")
+                && i.getPassword().equals("encoded-password1")));
+        verify(usersService).saveUserAndOutbox(argThat(i -> i.getUsername().equals("carol")
+                && i.getRoles().iterator().next().getName() == RoleEnum.ROLE_ADMIN));
+        verify(transactionTemplate, times(1)).executeWithoutResult(any());
+    }
+
+    @Test
+    public void importUsers_Csv_RetriesRejectedBatchOneByOne() throws Exception {
+        // Arrange
+
+        String input = """
+                username,email,password
+                alice,alice@mail.com,"pass,word1"
+                bob,bob@mail.com,password2
+                """;
+
+        when(userRepository.findExistingUsernames(anyCollection())).thenReturn(List.of());
+        when(userRepository.findExistingEmails(anyCollection())).thenReturn(List.of());
+        doAnswer(i -> {
+            if (((UserModel) i.getArgument(0)).getUsername().equals("bob")) {
+                throw new DataIntegrityViolationException("duplicate key value violates unique constraint \"uk_users_username\"");
+            }
+            return null;
+        }).when(usersService).saveUserAndOutbox(any(UserModel.class));
+        when(usersService.translateUniqueViolation(any())).thenReturn(new UsernameIsAlreadyTakenException());
+
+        // Act
+
+        UserImportReport actual = userImportService.importUsers(
+                new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8)), "text/csv; charset=utf-8");
+
+        // Assert
+
+        assertEquals(2, actual.getTotal());
+        assertEquals(1, actual.getImported());
+        assertEquals(1, actual.getFailed());
+        assertEquals(3L, actual.getFailures().get(0).getLine());
+        assertEquals("Username is already taken", actual.getFailures().get(0).getError());
+
+        verify(encoder).encode("pass,word1");
+        verify(transactionTemplate, times(3)).executeWithoutResult(any());
+    }
+}
@@ -4,24 +4,47 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.Jwts;
+import org.myblog.users.appenum.AppResponseStatusEnum;
 import org.myblog.users.appenum.RoleEnum;
+import org.myblog.users.dto.AppResponse;
 import org.myblog.users.dto.request.LoginRequest;
 import org.myblog.users.dto.request.SignupRequest;
+import org.myblog.users.dto.request.UserPageRequest;
 import org.myblog.users.dto.request.UserPutRequest;
 import org.myblog.users.dto.response.JwtResponse;
+import org.myblog.users.dto.response.PageResponse;
+import org.myblog.users.dto.response.RoleResponse;
+import org.myblog.users.dto.response.UserResponse;
 import org.myblog.users.exception.EmailIsAlreadyTakenException;
+import org.myblog.users.exception.PreconditionFailedException;
 import org.myblog.users.exception.RestIllegalArgumentException;
 import org.myblog.users.exception.UsernameIsAlreadyTakenException;
+import org.myblog.users.kafka.producer.UserCreatedProducer;
 import org.myblog.users.model.JwtInfo;
 import org.myblog.users.model.JwtUserInfo;
 import org.myblog.users.model.RoleModel;
 import org.myblog.users.model.UserModel;
-import org.myblog.users.repository.RoleRepository;
+import org.myblog.users.repository.OutboxRepository;
+import org.myblog.users.repository.UserKeysetQuery;
 import org.myblog.users.repository.UserRepository;
+import org.myblog.users.service.AvailabilityService;
+import org.myblog.users.service.RoleRegistry;
+import org.myblog.users.service.UserCache;
 import org.myblog.users.service.UsersService;
+import org.myblog.users.service.security.AuthThrottle;
+import org.myblog.users.service.security.PasswordUpgradeService;
 import org.myblog.users.service.security.UserDetailsImpl;
 import org.myblog.users.service.security.jwt.JwtUtils;
+import org.myblog.users.service.security.jwt.TokenRevocationService;
+import org.myblog.users.service.security.jwt.VerifiedToken;
+import org.myblog.users.service.security.jwt.VerifiedTokenCache;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
@@ -29,11 +52,16 @@ import org.springframework.security.core.Authentication;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.LocalDate;
 import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
@@ -56,14 +84,91 @@ public class UsersServiceUnitTests {
     private PasswordEncoder encoder;
 
     @Mock
-    private RoleRepository roleRepository;
+    private RoleRegistry roleRegistry;
 
     @Mock
     private UserDetails userDetails;
 
+    @Mock
+    private TokenRevocationService tokenRevocationService;
+
+    @Mock
+    private VerifiedTokenCache verifiedTokenCache;
+
+    @Mock
+    private PasswordUpgradeService passwordUpgradeService;
+
+    @Mock
+    private AuthThrottle authThrottle;
+
+    @Mock
+    private AvailabilityService availabilityService;
+
+    @Mock
+    private UserCache userCache;
+
+    @Mock
+    private UserCreatedProducer userCreatedProducer;
+
+    @Mock
+    private OutboxRepository outboxRepository;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @Spy
+    private ObjectMapper objectMapper;
+
     @InjectMocks
     private UsersService usersService;
 
+    @SuppressWarnings("unchecked")
+    private void inTransaction() {
+        doAnswer(i -> {
+            ((Consumer<TransactionStatus>) i.getArgument(0)).accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+    }
+
+    private static UserResponse response(UserModel model) {
+        return new UserResponse(model.getId(), model.getUsername(), model.getEmail(), model.getRoles().stream()
+                .map(i -> new RoleResponse(i.getId(), i.getName()))
+                .toList(), model.getVersion());
+    }
+
+    private static UserRepository.UserView view(UserModel model) {
+        String roleIds = model.getRoles().isEmpty()
+                ? null
+                : String.join(",", model.getRoles().stream().map(i -> String.valueOf(i.getId())).toList());
+
+        return new UserRepository.UserView() {
+            @Override
+            public Integer getId() {
+                return model.getId();
+            }
+
+            @Override
+            public String getUsername() {
+                return model.getUsername();
+            }
+
+            @Override
+            public String getEmail() {
+                return model.getEmail();
+            }
+
+            @Override
+            public Integer getVersion() {
+                return model.getVersion();
+            }
+
+            @Override
+            public String getRoleIds() {
+                return roleIds;
+            }
+        };
+    }
+
     @Test
     public void authenticateUser_Ok() {
         // Arrange
@@ -98,6 +203,8 @@ public class UsersServiceUnitTests {
         verify(authenticationManager).authenticate(any(Authentication.class));
         verify(authentication).getPrincipal();
         verify(jwtUtils).generateJwtToken(any(Authentication.class), anyList());
+        verify(authThrottle).checkUsername(expectedUsername);
+        verify(authThrottle, never()).recordFailedLogin(anyString());
     }
 
     @Test
@@ -120,6 +227,7 @@ public class UsersServiceUnitTests {
         verify(authenticationManager).authenticate(any(UsernamePasswordAuthenticationToken.class));
         verify(authentication, never()).getPrincipal();
         verify(jwtUtils, never()).generateJwtToken(any(Authentication.class), anyList());
+        verify(authThrottle).recordFailedLogin("maxsmg");
     }
 
     @Test
@@ -148,10 +256,9 @@ public class UsersServiceUnitTests {
         expected.setEmail(expectedEmail);
         expected.setRoles(Set.of(expectedRoleModel));
 
-        when(userRepository.existsByUsername(any(String.class))).thenReturn(false);
-        when(userRepository.existsByEmail(any(String.class))).thenReturn(false);
+        inTransaction();
         when(encoder.encode(any(String.class))).thenReturn(expectedEncodedPassword);
-        when(roleRepository.findByName(any(RoleEnum.class))).thenReturn(Optional.of(expectedRoleModel));
+        when(roleRegistry.reference(any(RoleEnum.class))).thenReturn(expectedRoleModel);
         when(userRepository.save(any(UserModel.class))).thenAnswer(i -> {
             UserModel result = i.getArgument(0);
             result.setId(expectedId);
@@ -160,16 +267,19 @@ public class UsersServiceUnitTests {
 
         // Act
 
-        UserModel actual = usersService.registerUser(input);
+        UserResponse actual = usersService.registerUser(input);
 
         // Assert
 
-        assertEquals(expected, actual);
+        assertEquals(response(expected), actual);
 
-        verify(userRepository).existsByUsername(expectedUsername);
-        verify(userRepository).existsByEmail(expectedEmail);
+        verify(userRepository, never()).existsByUsername(any(String.class));
+        verify(userRepository, never()).existsByEmail(any(String.class));
         verify(encoder).encode(expectedPassword);
-        verify(roleRepository).findByName(RoleEnum.ROLE_USER);
+        verify(roleRegistry).reference(RoleEnum.ROLE_USER);
+        verify(outboxRepository).save(argThat(i -> expectedId.equals(i.getKey())));
+        verify(userCreatedProducer).publishAfterCommit(argThat(i -> expectedId.equals(i.getKey())),
+                argThat(i -> expectedUsername.equals(i.getUsername())));
     }
 
     @Test
@@ -185,7 +295,9 @@ public class UsersServiceUnitTests {
         input.setPassword(expectedPassword);
         input.setEmail(expectedEmail);
 
-        when(userRepository.existsByUsername(any(String.class))).thenThrow(new UsernameIsAlreadyTakenException());
+        inTransaction();
+        doThrow(new DataIntegrityViolationException(
+                "duplicate key value violates unique constraint \"uk_users_username\"")).when(userRepository).flush();
 
         // Act & Assert
 
@@ -193,8 +305,8 @@ public class UsersServiceUnitTests {
 
         // Assert
 
-        verify(userRepository).existsByUsername(expectedUsername);
-        verify(userRepository, never()).save(any(UserModel.class));
+        verify(userRepository).save(argThat(i -> expectedUsername.equals(i.getUsername())));
+        verify(userRepository).flush();
     }
 
     @Test
@@ -210,8 +322,9 @@ public class UsersServiceUnitTests {
         input.setPassword(expectedPassword);
         input.setEmail(expectedEmail);
 
-        when(userRepository.existsByUsername(any(String.class))).thenReturn(false);
-        when(userRepository.existsByEmail(any(String.class))).thenThrow(new EmailIsAlreadyTakenException());
+        inTransaction();
+        doThrow(new DataIntegrityViolationException(
+                "ERROR: duplicate key value violates unique constraint \"uk_6dotkott2kjsp8vw4d0m25fb7\" Detail: Key (email)=(newUser@mail.com) already exists.")).when(userRepository).flush();
 
         // Act & Assert
 
@@ -219,16 +332,15 @@ public class UsersServiceUnitTests {
 
         // Assert
 
-        verify(userRepository).existsByUsername(expectedUsername);
-        verify(userRepository).existsByEmail(expectedEmail);
-        verify(userRepository, never()).save(any(UserModel.class));
+        verify(userRepository).save(argThat(i -> expectedEmail.equals(i.getEmail())));
+        verify(userRepository).flush();
     }
 
     @Test
     public void getAll_Ok() {
         // Arrange
 
-        List<UserModel> expected = new ArrayList<>();
+        List<UserResponse> expected = new ArrayList<>();
 
         RoleModel expectedRoleModel = new RoleModel();
         expectedRoleModel.setId(1);
@@ -248,20 +360,39 @@ public class UsersServiceUnitTests {
         user2.setEmail("testUser2@mail.com");
         user2.setRoles(Set.of(expectedRoleModel));
 
-        expected.add(user1);
-        expected.add(user2);
+        UserModel user3 = new UserModel();
+        user3.setId(3);
+        user3.setUsername("testUser3");
+
+        expected.add(response(user1));
+        expected.add(response(user2));
 
-        when(userRepository.findAll()).thenReturn(expected);
+        UserPageRequest request = new UserPageRequest();
+        request.setSize(2);
+
+        when(userRepository.findPage(any(UserKeysetQuery.class))).thenReturn(List.of(view(user1), view(user2), view(user3)));
+        when(roleRegistry.nameOf(1)).thenReturn(RoleEnum.ROLE_USER);
+        when(userRepository.estimateCount()).thenReturn(3L);
 
         // Act
 
-        List<UserModel> actual = usersService.getAll();
+        PageResponse<UserResponse> actual = usersService.getAll(request);
+
+        request.setCursor(actual.getNextCursor());
+        when(userRepository.findPage(any(UserKeysetQuery.class))).thenReturn(List.of(view(user3)));
+
+        PageResponse<UserResponse> next = usersService.getAll(request);
 
         // Assert
 
-        assertEquals(expected, actual);
+        assertEquals(expected, actual.getItems());
+        assertEquals(3L, actual.getApproximateTotal());
+        assertEquals(List.of(response(user3)), next.getItems());
+        assertNull(next.getNextCursor());
 
-        verify(userRepository).findAll();
+        verify(userRepository).findPage(argThat(i -> i.afterId() == null && i.limit() == 3));
+        verify(userRepository).findPage(argThat(i -> Integer.valueOf(2).equals(i.afterId())));
+        verify(userRepository, never()).findAll();
     }
 
     @Test
@@ -279,17 +410,22 @@ public class UsersServiceUnitTests {
         expected.setEmail("testUser1@mail.com");
         expected.setRoles(Set.of(expectedRoleModel));
 
-        when(userRepository.findById(any(Integer.class))).thenReturn(Optional.of(expected));
+        when(userCache.getById(any(Integer.class), any())).thenAnswer(i -> i.<Function<Integer, Optional<UserResponse>>>getArgument(1)
+                .apply(i.getArgument(0))
+                .orElse(null));
+        when(userRepository.findViewById(any(Integer.class))).thenReturn(Optional.of(view(expected)));
+        when(roleRegistry.nameOf(1)).thenReturn(RoleEnum.ROLE_USER);
 
         // Act
 
-        UserModel actual = usersService.get(expected.getId());
+        UserResponse actual = usersService.get(expected.getId());
 
         // Assert
 
-        assertEquals(expected, actual);
+        assertEquals(response(expected), actual);
 
-        verify(userRepository).findById(expected.getId());
+        verify(userRepository).findViewById(expected.getId());
+        verify(userRepository, never()).findWithRolesById(any(Integer.class));
     }
 
     @Test
@@ -320,8 +456,8 @@ public class UsersServiceUnitTests {
         actualMock.setEmail("oldMail@mail.com");
         actualMock.setRoles(new HashSet<>(Set.of(actualRoleModel)));
 
-        when(userRepository.findById(any(Integer.class))).thenReturn(Optional.of(actualMock));
-        when(roleRepository.findByName(any(RoleEnum.class))).thenAnswer(i -> {
+        when(userRepository.findWithRolesById(any(Integer.class))).thenReturn(Optional.of(actualMock));
+        when(roleRegistry.reference(any(RoleEnum.class))).thenAnswer(i -> {
             RoleEnum roleEnum = i.getArgument(0);
 
             RoleModel result = new RoleModel();
@@ -336,7 +472,7 @@ public class UsersServiceUnitTests {
 
             result.setName(roleEnum);
 
-            return Optional.of(result);
+            return result;
         });
         when(encoder.encode(any(String.class))).thenReturn(expected.getPassword());
 
@@ -352,15 +488,17 @@ public class UsersServiceUnitTests {
 
         // Act
 
-        UserModel actual = usersService.put(userId, userPutRequest);
+        UserResponse actual = usersService.put(userId, userPutRequest, null);
 
         // Assert
 
-        assertEquals(expected, actual);
+        assertEquals(response(expected), actual);
 
-        verify(userRepository).findById(actual.getId());
-        verify(roleRepository).findByName(any(RoleEnum.class));
+        verify(userRepository).findWithRolesById(actual.getId());
+        verify(roleRegistry).reference(any(RoleEnum.class));
         verify(encoder).encode(any(String.class));
+        verify(tokenRevocationService).revokeAll(actualMock);
+        verify(userCache).invalidate(userId);
     }
 
     @Test
@@ -387,21 +525,49 @@ public class UsersServiceUnitTests {
         expected.setEmail(actualMock.getEmail());
         expected.setRoles(actualMock.getRoles());
 
-        when(userRepository.findById(any(Integer.class))).thenReturn(Optional.of(actualMock));
+        when(userRepository.findWithRolesById(any(Integer.class))).thenReturn(Optional.of(actualMock));
 
         UserPutRequest userPutRequest = new UserPutRequest();
 
         // Act
 
-        UserModel actual = usersService.put(userId, userPutRequest);
+        UserResponse actual = usersService.put(userId, userPutRequest, null);
 
         // Assert
 
-        assertEquals(expected, actual);
+        assertEquals(response(expected), actual);
 
-        verify(userRepository).findById(actual.getId());
-        verify(roleRepository, never()).findByName(any(RoleEnum.class));
+        verify(userRepository).findWithRolesById(actual.getId());
+        verify(roleRegistry, never()).reference(any(RoleEnum.class));
         verify(encoder, never()).encode(any(String.class));
+        verify(tokenRevocationService, never()).revokeAll(any(UserModel.class));
+    }
+
+    @Test
+    public void put_PreconditionFailed() {
+        // Arrange
+
+        Integer userId = 1;
+
+        UserModel actualMock = new UserModel();
+        actualMock.setId(userId);
+        actualMock.setUsername("oldUsername");
+        actualMock.setVersion(4);
+
+        when(userRepository.findWithRolesById(any(Integer.class))).thenReturn(Optional.of(actualMock));
+
+        UserPutRequest userPutRequest = new UserPutRequest();
+        userPutRequest.setUsername("newUsername");
+
+        // Act & Assert
+
+        assertThrows(PreconditionFailedException.class, () -> usersService.put(userId, userPutRequest, 3));
+
+        // Assert
+
+        assertEquals("oldUsername", actualMock.getUsername());
+        verify(userRepository, never()).saveAndFlush(any(UserModel.class));
+        verify(tokenRevocationService, never()).revokeAll(any(UserModel.class));
     }
 
     @Test
@@ -422,6 +588,7 @@ public class UsersServiceUnitTests {
 
         verify(userRepository).findById(id);
         verify(userRepository).delete(any(UserModel.class));
+        verify(tokenRevocationService).revokeAll(any(), eq(TokenRevocationService.ALL_TOKENS_REVOKED));
     }
 
     @Test
@@ -441,4 +608,136 @@ public class UsersServiceUnitTests {
         verify(userRepository).findById(id);
         verify(userRepository, never()).delete(any(UserModel.class));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void logout_TokenId_RevokesOnlyThatToken() {
+        // Arrange
+
+        Claims claims = Jwts.claims().setSubject("maxsmg").setId("jti");
+        claims.put(JwtUtils.CLAIM_USER_ID, 3);
+
+        when(jwtUtils.getVerifiedClaims("token")).thenReturn(claims);
+
+        // Act
+
+        usersService.logout("Bearer token");
+
+        // Assert
+
+        verify(tokenRevocationService).revoke(argThat(i -> "jti".equals(i.tokenId()) && i.userId() == 3));
+        verify(tokenRevocationService, never()).revokeAll(any(UserModel.class));
+        verify(tokenRevocationService, never()).revokeAll(any(Integer.class), anyInt());
+    }
+
+    @Test
+    public void logout_WithoutTokenId_BumpsUserGeneration() {
+        // Arrange
+
+        UserModel user = new UserModel();
+        user.setId(3);
+
+        Claims claims = Jwts.claims().setSubject("maxsmg");
+        claims.put(JwtUtils.CLAIM_USER_ID, 3);
+
+        when(jwtUtils.getVerifiedClaims("token")).thenReturn(claims);
+        when(userRepository.findById(3)).thenReturn(Optional.of(user));
+
+        // Act
+
+        usersService.logout("Bearer token");
+
+        // Assert
+
+        verify(tokenRevocationService).revokeAll(user);
+        verify(userRepository).saveAndFlush(user);
+        verify(tokenRevocationService, never()).revokeAll(any(Integer.class), anyInt());
+        verify(tokenRevocationService, never()).revoke(any());
+    }
+
+    @Test
+    public void logout_LegacyToken_BumpsUserGeneration() {
+        // Arrange
+
+        UserModel user = new UserModel();
+        user.setId(3);
+
+        JwtUserInfo userInfo = new JwtUserInfo();
+        userInfo.setId(3);
+
+        JwtInfo jwtInfo = new JwtInfo();
+        jwtInfo.setUserInfo(userInfo);
+
+        Claims claims = Jwts.claims().setSubject("maxsmg");
+        claims.put("user", "{\"id\":3}");
+
+        when(jwtUtils.getVerifiedClaims("token")).thenReturn(claims);
+        when(jwtUtils.getJwtInfo(claims)).thenReturn(jwtInfo);
+        when(userRepository.findById(3)).thenReturn(Optional.of(user));
+
+        // Act
+
+        usersService.logout("Bearer token");
+
+        // Assert
+
+        verify(tokenRevocationService).revokeAll(user);
+        verify(userRepository).saveAndFlush(user);
+    }
+
+    @Test
+    public void logout_UnresolvableUser_Rejected() {
+        // Arrange
+
+        Claims claims = Jwts.claims().setSubject("maxsmg");
+        claims.put("user", "not json");
+
+        when(jwtUtils.getVerifiedClaims("token")).thenReturn(claims);
+        when(jwtUtils.getJwtInfo(claims)).thenThrow(new RuntimeException("Malformed user claim"));
+
+        // Act
+
+        assertThrows(RestIllegalArgumentException.class, () -> usersService.logout("Bearer token"));
+
+        // Assert
+
+        verify(userRepository, never()).findById(any());
+        verify(tokenRevocationService, never()).revokeAll(any(UserModel.class));
+        verify(tokenRevocationService, never()).revokeAll(any(Integer.class), anyInt());
+    }
+
+    @Test
+    public void introspect_Ok() {
+        // Arrange
+
+        JwtUserInfo userInfo = new JwtUserInfo();
+        userInfo.setId(3);
+
+        JwtInfo expected = new JwtInfo();
+        expected.setUserInfo(userInfo);
+        expected.setExpiration(new Date());
+
+        Claims claims = Jwts.claims().setSubject("maxsmg");
+        Claims legacyClaims = Jwts.claims().setSubject("legacy");
+
+        when(verifiedTokenCache.verify("valid")).thenReturn(VerifiedToken.of(claims, null));
+        when(jwtUtils.getJwtInfo(claims)).thenReturn(expected);
+        when(verifiedTokenCache.verify("expired")).thenThrow(new ExpiredJwtException(null, null, "JWT expired"));
+        when(verifiedTokenCache.verify("legacy")).thenReturn(VerifiedToken.of(legacyClaims, null));
+        when(jwtUtils.getJwtInfo(legacyClaims)).thenThrow(new RuntimeException("Malformed user claim"));
+
+        // Act
+
+        List<AppResponse<JwtInfo>> actual = usersService.introspect(List.of("valid", "expired", "legacy"));
+
+        // Assert
+
+        assertEquals(3, actual.size());
+        assertEquals(AppResponseStatusEnum.OK, actual.get(0).getStatus());
+        assertEquals(expected, actual.get(0).getData());
+        assertEquals(AppResponseStatusEnum.ERROR, actual.get(1).getStatus());
+        assertEquals(Set.of("JWT expired"), actual.get(1).getErrors().get("general"));
+        assertEquals(AppResponseStatusEnum.ERROR, actual.get(2).getStatus());
+        assertEquals(Set.of("Token claims are invalid"), actual.get(2).getErrors().get("general"));
+        verify(jwtUtils, never()).parseClaims(anyString());
+    }
+}
@@ -0,0 +1,142 @@
+package org.myblog.users.unit.service;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.Jwts;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.myblog.users.service.security.jwt.JwtUtils;
+import org.myblog.users.service.security.jwt.VerifiedToken;
+import org.myblog.users.service.security.jwt.VerifiedTokenCache;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class VerifiedTokenCacheUnitTests {
+    @Mock
+    private JwtUtils jwtUtils;
+
+    private VerifiedTokenCache verifiedTokenCache;
+
+    @BeforeEach
+    public void init() {
+        verifiedTokenCache = new VerifiedTokenCache();
+        ReflectionTestUtils.setField(verifiedTokenCache, "jwtUtils", jwtUtils);
+        ReflectionTestUtils.setField(verifiedTokenCache, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(verifiedTokenCache, "maximumSize", 100L);
+        verifiedTokenCache.init();
+    }
+
+    @Test
+    public void get_VerifiesOncePerToken() {
+        // Arrange
+
+        Claims claims = Jwts.claims().setSubject("maxsmg");
+        claims.setExpiration(new Date(System.currentTimeMillis() + 60000));
+
+        when(jwtUtils.getVerifiedClaims("token")).thenReturn(claims);
+
+        // Act
+
+        VerifiedToken first = verifiedTokenCache.get("token");
+        VerifiedToken second = verifiedTokenCache.get("token");
+
+        // Assert
+
+        assertSame(first, second);
+        assertEquals(1, verifiedTokenCache.stats().hitCount());
+        assertEquals(1, verifiedTokenCache.stats().missCount());
+        verify(jwtUtils, times(1)).getVerifiedClaims("token");
+    }
+
+    @Test
+    public void get_InvalidTokenIsNotCached() {
+        // Arrange
+
+        when(jwtUtils.getVerifiedClaims(anyString())).thenReturn(null);
+
+        // Act
+
+        VerifiedToken first = verifiedTokenCache.get("broken");
+        VerifiedToken second = verifiedTokenCache.get("broken");
+
+        // Assert
+
+        assertNull(first);
+        assertNull(second);
+        verify(jwtUtils, times(2)).getVerifiedClaims("broken");
+    }
+
+    @Test
+    public void verify_SharesEntriesAndRethrowsFailures() {
+        // Arrange
+
+        Claims claims = Jwts.claims().setSubject("maxsmg");
+        claims.setExpiration(new Date(System.currentTimeMillis() + 60000));
+
+        when(jwtUtils.getVerifiedClaims("token")).thenReturn(claims);
+        when(jwtUtils.parseClaims("expired")).thenThrow(new ExpiredJwtException(null, null, "JWT expired"));
+
+        // Act
+
+        VerifiedToken first = verifiedTokenCache.get("token");
+        VerifiedToken second = verifiedTokenCache.verify("token");
+        ExpiredJwtException ex = assertThrows(ExpiredJwtException.class, () -> verifiedTokenCache.verify("expired"));
+
+        // Assert
+
+        assertSame(first, second);
+        assertEquals("JWT expired", ex.getMessage());
+        verify(jwtUtils, never()).parseClaims("token");
+    }
+
+    @Test
+    public void get_ExpiredEntryIsReverified() {
+        // Arrange
+
+        Claims claims = Jwts.claims().setSubject("maxsmg");
+        claims.setExpiration(new Date(System.currentTimeMillis() - 1000));
+
+        when(jwtUtils.getVerifiedClaims("token")).thenReturn(claims);
+
+        // Act
+
+        verifiedTokenCache.get("token");
+        verifiedTokenCache.get("token");
+
+        // Assert
+
+        verify(jwtUtils, times(2)).getVerifiedClaims("token");
+    }
+
+    @Test
+    public void get_NonAsciiTokensDoNotShareEntry() {
+        // Arrange
+
+        Claims claims = Jwts.claims().setSubject("maxsmg");
+        claims.setExpiration(new Date(System.currentTimeMillis() + 60000));
+
+        when(jwtUtils.getVerifiedClaims("token\u00e9")).thenReturn(claims);
+        when(jwtUtils.getVerifiedClaims("token\u00e8")).thenReturn(null);
+
+        // Act
+
+        VerifiedToken first = verifiedTokenCache.get("token\u00e9");
+        VerifiedToken second = verifiedTokenCache.get("token\u00e8");
+
+        // Assert
+
+        assertNotNull(first);
+        assertNull(second);
+        verify(jwtUtils, times(1)).getVerifiedClaims("token\u00e8");
+    }
+}